@@ -0,0 +1,79 @@
+import java.lang.management.ManagementFactory;
+
+/* Check that a step of the physics allocates nothing, in each mode of the world.
+
+ For each mode, a world of evolved machines is warmed up, then the bytes allocated
+ by the current thread over many steps are read from the ThreadMXBean counters.
+ The check fails (exit code 1) when a mode allocates on average one byte or more
+ per step.
+
+ Usage (from the repository root):
+ javac -d out src/*.java bench/*.java && java -cp out AllocationCheck
+ */
+public class AllocationCheck {
+
+    private static int NB_MACHINES = 200;
+    private static int NB_WARMUP_STEPS = 500;
+    private static int NB_STEPS = 500;
+
+    public static void main(String args[]) {
+
+        String[] modes = {"default", "store", "continuous", "self", "arena"};
+        boolean success = true;
+
+        System.out.println(String.format("%-12s %14s", "Mode", "bytes/step"));
+        for (String mode : modes) {
+            World world = buildWorld(mode);
+            double bytesPerStep = measure(world);
+            boolean ok = bytesPerStep < 1;
+            System.out.println(String.format("%-12s %14.2f %s", mode, bytesPerStep, ok ? "" : "FAILED"));
+            success = success && ok;
+        }
+
+        if (!success) {
+            System.exit(1);
+        }
+    }
+
+    private static World buildWorld(String mode) {
+        World world = new World(NB_MACHINES);
+        for (int i = 0; i < 300; i++) {
+            world.mutate();
+        }
+        switch (mode) {
+            case "store":
+                world.setStoreMode(true);
+                break;
+            case "continuous":
+                world.setContinuousCollisions(true);
+                break;
+            case "self":
+                world.setSelfCollisions(true);
+                break;
+            case "arena":
+                world.setArenaMode(true);
+                break;
+            default:
+                break;
+        }
+        return world;
+    }
+
+    private static double measure(World world) {
+        com.sun.management.ThreadMXBean threadBean
+                = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        /* The buffers of the world and of the machines reach their final size. */
+        for (int i = 0; i < NB_WARMUP_STEPS; i++) {
+            world.evolve(0.05);
+        }
+
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < NB_STEPS; i++) {
+            world.evolve(0.05);
+        }
+        long bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+        return (double) bytes / NB_STEPS;
+    }
+}
@@ -0,0 +1,270 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+/* Benchmarks of the physics and genetic algorithm hot paths.
+
+ Each benchmark is warmed up, then run repeatedly for a fixed time on the
+ current thread. For each one we print the throughput, the time per operation
+ and the bytes allocated per operation (same figure as the normalized
+ allocation rate of a GC profiler), so that regressions in steps/s
+ and in bytes/step are both visible.
+
+ Usage (from the repository root):
+ javac -d out src/*.java bench/*.java && java -cp out Benchmarks [filter]
+ Only the benchmarks whose name contains the filter are run.
+ */
+public class Benchmarks {
+
+    private static long WARMUP_MS = 500;
+    private static long MEASURE_MS = 1000;
+
+    private static abstract class Benchmark {
+
+        private String name;
+
+        public Benchmark(String name) {
+            this.name = name;
+        }
+
+        /* Called once before the warmup. */
+        public void setup() {
+        }
+
+        /* One operation. */
+        public abstract void run();
+    }
+
+    public static void main(String args[]) {
+
+        String filter = "";
+        if (args.length > 0) {
+            filter = args[0];
+        }
+
+        ArrayList<Benchmark> list = new ArrayList<>();
+        addWorldBenchmarks(list);
+        addMachineBenchmarks(list);
+        addCollisionBenchmarks(list);
+        addGeneticBenchmarks(list);
+
+        System.out.println(String.format("%-36s %14s %14s %12s", "Benchmark", "ops/s", "ns/op", "bytes/op"));
+        for (Benchmark b : list) {
+            if (b.name.contains(filter)) {
+                measure(b);
+            }
+        }
+    }
+
+    private static void measure(Benchmark b) {
+        com.sun.management.ThreadMXBean threadBean
+                = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        b.setup();
+        runFor(b, WARMUP_MS);
+
+        long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long nbOps = runFor(b, MEASURE_MS);
+        long nanos = System.nanoTime() - start;
+        long bytes = threadBean.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        System.out.println(String.format("%-36s %14.1f %14.1f %12.1f",
+                b.name, nbOps / (nanos / 1e9), (double) nanos / nbOps, (double) bytes / nbOps));
+    }
+
+    /* Run the benchmark for at least the given duration, and return the number of operations. */
+    private static long runFor(Benchmark b, long millis) {
+        long end = System.nanoTime() + millis * 1000000;
+        long nbOps = 0;
+        int batch = 1;
+        while (System.nanoTime() < end) {
+            for (int i = 0; i < batch; i++) {
+                b.run();
+            }
+            nbOps += batch;
+            batch = Math.min(2 * batch, 1024);
+        }
+        return nbOps;
+    }
+
+    /* A world whose machines have already been mutated and evolved for a while. */
+    private static World buildWorld(int nbMachines) {
+        World world = new World(nbMachines);
+        for (int i = 0; i < 300; i++) {
+            world.mutate();
+        }
+        for (int i = 0; i < 100; i++) {
+            world.evolve(0.05);
+        }
+        return world;
+    }
+
+    private static void addWorldBenchmarks(ArrayList<Benchmark> list) {
+        int[] sizes = {10, 100, 1000};
+        for (final int size : sizes) {
+            list.add(new Benchmark("World.evolve/" + size) {
+                private World world;
+
+                @Override
+                public void setup() {
+                    this.world = buildWorld(size);
+                }
+
+                @Override
+                public void run() {
+                    this.world.evolve(0.05);
+                }
+            });
+        }
+    }
+
+    private static void addMachineBenchmarks(ArrayList<Benchmark> list) {
+        for (int type = 1; type <= 6; type++) {
+            final int machineType = type;
+            list.add(new Benchmark("Machine.evolve/type" + type) {
+                private Machine machine;
+
+                @Override
+                public void setup() {
+                    this.machine = new Machine(machineType);
+                    this.machine.setGravity(0, -9);
+                }
+
+                @Override
+                public void run() {
+                    this.machine.evolve(0.05);
+                }
+            });
+        }
+        list.add(new Benchmark("Spring.applyForce") {
+            private Point a, b;
+            private Spring spring;
+
+            @Override
+            public void setup() {
+                this.a = new Point(0, 0, 1);
+                this.b = new Point(3, 1, 1);
+                this.spring = new Spring(this.a, this.b);
+                this.spring.setL0(2.5);
+            }
+
+            @Override
+            public void run() {
+                this.a.razForces();
+                this.b.razForces();
+                this.spring.applyForce(0.05);
+                this.spring.updateLength();
+            }
+        });
+    }
+
+    /* Block.collide in the three kinds of regions: a face, a corner, and far away. */
+    private static void addCollisionBenchmarks(ArrayList<Benchmark> list) {
+        final double[][] cases = {
+            {0, 1.5, 0, -1}, // On the top face, moving down
+            {5.5, 1.5, -1, -1}, // On the upper right corner
+            {20, 20, 0, -1} // Far from the block
+        };
+        String[] names = {"face", "corner", "miss"};
+        for (int k = 0; k < cases.length; k++) {
+            final double[] c = cases[k];
+            list.add(new Benchmark("Block.collide/" + names[k]) {
+                private Block block;
+                private Point point;
+
+                @Override
+                public void setup() {
+                    this.block = new Block(0, 0, 10, 2, 0);
+                    this.point = new Point(c[0], c[1], 1);
+                }
+
+                @Override
+                public void run() {
+                    this.point.setPos(c[0], c[1]);
+                    this.point.setSpeed(c[2], c[3]);
+                    this.block.collide(this.point, 0.05);
+                }
+            });
+        }
+    }
+
+    private static void addGeneticBenchmarks(ArrayList<Benchmark> list) {
+        list.add(new Benchmark("World.sortMachines/1000") {
+            private World world;
+
+            @Override
+            public void setup() {
+                this.world = buildWorld(1000);
+            }
+
+            @Override
+            public void run() {
+                this.world.sortMachines();
+            }
+        });
+        list.add(new Benchmark("World.killHalf+breed/1000") {
+            private World world;
+
+            @Override
+            public void setup() {
+                this.world = buildWorld(1000);
+            }
+
+            @Override
+            public void run() {
+                this.world.killHalf();
+                this.world.breed();
+            }
+        });
+        list.add(new Benchmark("sort+killHalf+breed+mutate+sort/1000") {
+            private World world;
+
+            @Override
+            public void setup() {
+                this.world = buildWorld(1000);
+            }
+
+            @Override
+            public void run() {
+                this.world.sortMachines();
+                this.world.killHalf();
+                this.world.breed();
+                this.world.mutate();
+                this.world.sortMachines();
+                this.world.getBestMachine();
+            }
+        });
+        final Selection[] selections = {
+            new TruncationSelection(), new TournamentSelection(), new SteadyStateSelection(100)
+        };
+        for (final Selection selection : selections) {
+            list.add(new Benchmark(selection.getClass().getName() + "/1000") {
+                private World world;
+
+                @Override
+                public void setup() {
+                    this.world = buildWorld(1000);
+                }
+
+                @Override
+                public void run() {
+                    selection.nextGeneration(this.world);
+                }
+            });
+        }
+        list.add(new Benchmark("World.mutate/1000") {
+            private World world;
+
+            @Override
+            public void setup() {
+                this.world = buildWorld(1000);
+            }
+
+            @Override
+            public void run() {
+                this.world.mutate();
+            }
+        });
+    }
+}
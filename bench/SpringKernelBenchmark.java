@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+
+/* Microbenchmark of the spring forces: Spring.applyForce on Point objects
+ versus SpringKernel.applyForces on a PointStore.
+
+ Usage (from the repository root):
+ javac -d out src/*.java bench/*.java && java -cp out SpringKernelBenchmark [nbSprings] [nbSteps]
+ */
+public class SpringKernelBenchmark {
+
+    public static void main(String args[]) {
+
+        int nbSprings = 100000;
+        int nbSteps = 200;
+        if (args.length > 0) {
+            nbSprings = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            nbSteps = Integer.parseInt(args[1]);
+        }
+
+        /* A chain of points linked by springs, slightly stretched. */
+        ArrayList<Point> pointList = new ArrayList<>();
+        ArrayList<Spring> springList = new ArrayList<>();
+        for (int i = 0; i <= nbSprings; i++) {
+            pointList.add(new Point(i, 0.1 * (i % 3), 1));
+        }
+        for (int i = 0; i < nbSprings; i++) {
+            Spring s = new Spring(pointList.get(i), pointList.get(i + 1));
+            s.setL0(0.9);
+            springList.add(s);
+        }
+
+        double dt = 0.05;
+
+        /* Object path. */
+        for (int warmup = 0; warmup < 3; warmup++) {
+            long start = System.nanoTime();
+            for (int step = 0; step < nbSteps; step++) {
+                for (int i = 0; i < springList.size(); i++) {
+                    springList.get(i).applyForce(dt);
+                }
+                for (int i = 0; i < springList.size(); i++) {
+                    springList.get(i).updateLength();
+                }
+            }
+            report("Spring.applyForce", nbSprings, nbSteps, System.nanoTime() - start);
+        }
+
+        /* Kernel path. */
+        PointStore store = new PointStore(pointList.size());
+        for (Point p : pointList) {
+            p.attach(store);
+        }
+        SpringKernel kernel = new SpringKernel(springList);
+        for (int warmup = 0; warmup < 3; warmup++) {
+            long start = System.nanoTime();
+            for (int step = 0; step < nbSteps; step++) {
+                kernel.applyForces(store, dt);
+                kernel.updateLengths();
+            }
+            report("SpringKernel.applyForces", nbSprings, nbSteps, System.nanoTime() - start);
+        }
+    }
+
+    private static void report(String name, int nbSprings, int nbSteps, long nanos) {
+        double springsPerSecond = (double) nbSprings * nbSteps / (nanos / 1e9);
+        System.out.println(name + ": " + (long) springsPerSecond + " springs/s");
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+/* Headless entry point: runs the genetic algorithm as fast as the CPU allows,
+ without any window or Swing timer.
+
+ Usage: java BatchRunner [nbMachines] [stepsPerGeneration] [nbGenerations] [outputPath] [nbThreads]
+ [integrator] [dt] [nbIslands] [migrationInterval] [nbMigrants] [nbWorkers] [cacheSize] [selection]
+ [options]
+ where the integrator is one of euler (default), verlet, implicit, xpbd,
+ and the selection one of truncation (default), tournament, steady (see Selection).
+ The options may be placed anywhere among the other arguments:
+ --store keeps the points of all the machines in flat arrays (see PointStore);
+ --continuous stops each point at the exact date it touches a block (see Collision);
+ --self makes the points of each machine collide with each other (see SpatialHash);
+ --arena makes the machines push each other (see SweepAndPrune).
+ With more than one island, the machines are split between the islands, each island
+ runs on its own thread (nbThreads is then ignored), and the nbMigrants best machines
+ of each island migrate every migrationInterval generations.
+ With nbWorkers > 0 (and a single island), the machines are evolved in that many
+ worker processes (see Evaluator).
+ With cacheSize > 0 (and a single island), the results of that many evaluations are
+ kept, and identical machines are not evolved again (see FitnessCache).
+
+ The output file receives one line per generation (per migration with islands):
+ generation, best score, number of points.
+ */
+public class BatchRunner {
+
+    public static void main(String args[]) {
+
+        int nbMachines = 1000;
+        int stepsPerGeneration = 2000;
+        int nbGenerations = 100;
+        String outputPath = "generations.csv";
+        int nbThreads = 1;
+        String integratorName = "euler";
+        double dt = 0.05;
+        int nbIslands = 1;
+        int migrationInterval = 10;
+        int nbMigrants = 5;
+        int nbWorkers = 0;
+        int cacheSize = 0;
+        String selectionName = "truncation";
+
+        /* The options start with "--"; the other arguments are read in order. */
+        ArrayList<String> options = new ArrayList<>();
+        ArrayList<String> values = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                options.add(arg);
+            } else {
+                values.add(arg);
+            }
+        }
+        args = values.toArray(new String[0]);
+
+        try {
+            if (args.length > 0) {
+                nbMachines = Integer.parseInt(args[0]);
+            }
+            if (args.length > 1) {
+                stepsPerGeneration = Integer.parseInt(args[1]);
+            }
+            if (args.length > 2) {
+                nbGenerations = Integer.parseInt(args[2]);
+            }
+            if (args.length > 3) {
+                outputPath = args[3];
+            }
+            if (args.length > 4) {
+                nbThreads = Integer.parseInt(args[4]);
+            }
+            if (args.length > 5) {
+                integratorName = args[5];
+            }
+            if (args.length > 6) {
+                dt = Double.parseDouble(args[6]);
+            }
+            if (args.length > 7) {
+                nbIslands = Integer.parseInt(args[7]);
+            }
+            if (args.length > 8) {
+                migrationInterval = Integer.parseInt(args[8]);
+            }
+            if (args.length > 9) {
+                nbMigrants = Integer.parseInt(args[9]);
+            }
+            if (args.length > 10) {
+                nbWorkers = Integer.parseInt(args[10]);
+            }
+            if (args.length > 11) {
+                cacheSize = Integer.parseInt(args[11]);
+            }
+            if (args.length > 12) {
+                selectionName = args[12];
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Usage: java BatchRunner [nbMachines] [stepsPerGeneration] [nbGenerations] [outputPath] [nbThreads]"
+                    + " [integrator] [dt] [nbIslands] [migrationInterval] [nbMigrants] [nbWorkers] [cacheSize] [selection]"
+                    + " [options]");
+            return;
+        }
+
+        if (nbIslands > 1) {
+            runIslands(nbMachines / nbIslands, stepsPerGeneration, nbGenerations, outputPath,
+                    integratorName, selectionName, options, dt, nbIslands, migrationInterval, nbMigrants);
+            return;
+        }
+
+        World world = new World(nbMachines);
+        world.setNbThreads(nbThreads);
+
+        Integrator integrator = createIntegrator(integratorName, world);
+        Selection selection = createSelection(selectionName, nbMachines);
+        if (integrator == null || selection == null || !applyOptions(options, world)) {
+            world.shutdown();
+            return;
+        }
+        world.setIntegrator(integrator);
+        GenerationScheduler scheduler = new GenerationScheduler(world, stepsPerGeneration);
+        scheduler.setSelection(selection);
+        if (nbWorkers > 0) {
+            try {
+                scheduler.setEvaluator(new Evaluator(nbWorkers, integratorName));
+            } catch (IOException e) {
+                System.out.println("Cannot start the workers, evolving locally: " + e.getMessage());
+            }
+        }
+        if (cacheSize > 0) {
+            scheduler.setFitnessCache(new FitnessCache(cacheSize));
+        }
+
+        try (PrintWriter output = new PrintWriter(new FileWriter(outputPath))) {
+
+            output.println("generation,bestScore,nbPoints");
+            long start = System.nanoTime();
+
+            for (int generation = 0; generation < nbGenerations; generation++) {
+                while (!scheduler.step(dt)) {
+                    // The selection runs within the step that ends the generation.
+                }
+                Machine best = scheduler.getBestMachine();
+
+                double elapsed = (System.nanoTime() - start) / 1e9;
+                if (best == null) {
+                    System.out.println("generation " + generation + ": no machine left");
+                    output.println(generation + ",,");
+                    continue;
+                }
+                System.out.println("generation " + generation
+                        + ": best " + best.getScore()
+                        + " with " + best.getNbPoints() + " points, "
+                        + ((generation + 1) / elapsed) + " generations/s");
+                output.println(generation + "," + best.getScore() + "," + best.getNbPoints());
+            }
+
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.println(nbGenerations + " generations in " + elapsed + " s ("
+                    + (nbGenerations / elapsed) + " generations/s, "
+                    + ((double) nbGenerations * stepsPerGeneration / elapsed) + " steps/s)");
+            if (scheduler.getFitnessCache() != null) {
+                FitnessCache cache = scheduler.getFitnessCache();
+                System.out.println("fitness cache: " + cache.getNbHits() + " hits, "
+                        + cache.getNbMisses() + " misses, " + cache.getSize() + " entries");
+            }
+        } catch (IOException e) {
+            System.out.println("Cannot write to " + outputPath + ": " + e.getMessage());
+        } finally {
+            if (scheduler.getEvaluator() != null) {
+                scheduler.getEvaluator().shutdown();
+            }
+            world.shutdown();
+        }
+    }
+
+    private static void runIslands(int nbMachinesPerIsland, int stepsPerGeneration, int nbGenerations,
+            String outputPath, String integratorName, String selectionName, ArrayList<String> options, double dt,
+            int nbIslands, int migrationInterval, int nbMigrants) {
+
+        IslandModel model = new IslandModel(nbIslands, nbMachinesPerIsland, stepsPerGeneration,
+                migrationInterval, nbMigrants);
+        for (int i = 0; i < nbIslands; i++) {
+            World world = model.getIsland(i).getWorld();
+            Integrator integrator = createIntegrator(integratorName, world);
+            Selection selection = createSelection(selectionName, nbMachinesPerIsland);
+            if (integrator == null || selection == null || !applyOptions(options, world)) {
+                model.shutdown();
+                return;
+            }
+            world.setIntegrator(integrator);
+            model.getIsland(i).setSelection(selection);
+        }
+
+        try (PrintWriter output = new PrintWriter(new FileWriter(outputPath))) {
+
+            output.println("generation,bestScore,nbPoints");
+            long start = System.nanoTime();
+
+            while (model.getGeneration() < nbGenerations) {
+                model.runEpoch(dt);
+                Machine best = model.getBestMachine();
+                int generation = model.getGeneration() - 1;
+
+                double elapsed = (System.nanoTime() - start) / 1e9;
+                if (best == null) {
+                    System.out.println("generation " + generation + ": no machine left");
+                    output.println(generation + ",,");
+                    continue;
+                }
+                System.out.println("generation " + generation
+                        + ": best " + best.getScore()
+                        + " with " + best.getNbPoints() + " points, "
+                        + (model.getGeneration() * nbIslands / elapsed) + " island generations/s");
+                output.println(generation + "," + best.getScore() + "," + best.getNbPoints());
+            }
+
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.println(model.getGeneration() + " generations on " + nbIslands + " islands in " + elapsed + " s ("
+                    + ((double) model.getGeneration() * nbIslands * stepsPerGeneration / elapsed) + " steps/s)");
+        } catch (IOException e) {
+            System.out.println("Cannot write to " + outputPath + ": " + e.getMessage());
+        } finally {
+            model.shutdown();
+        }
+    }
+
+    /* Null, with a message, when the name is unknown. */
+    static Integrator createIntegrator(String name, World world) {
+        switch (name) {
+            case "euler":
+                return new SymplecticEulerIntegrator();
+            case "verlet":
+                return new VelocityVerletIntegrator();
+            case "implicit":
+                return new ImplicitEulerIntegrator();
+            case "xpbd":
+                return new XpbdIntegrator(world);
+            default:
+                System.out.println("Unknown integrator " + name + "; use euler, verlet, implicit or xpbd.");
+                return null;
+        }
+    }
+
+    /* False, with a message, when one of the options is unknown. */
+    static boolean applyOptions(ArrayList<String> options, World world) {
+        for (String option : options) {
+            switch (option) {
+                case "--store":
+                    world.setStoreMode(true);
+                    break;
+                case "--continuous":
+                    world.setContinuousCollisions(true);
+                    break;
+                case "--self":
+                    world.setSelfCollisions(true);
+                    break;
+                case "--arena":
+                    world.setArenaMode(true);
+                    break;
+                default:
+                    System.out.println("Unknown option " + option + "; use --store, --continuous, --self or --arena.");
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /* Null, with a message, when the name is unknown. The steady state replaces
+     a tenth of the population per generation. */
+    private static Selection createSelection(String name, int nbMachines) {
+        switch (name) {
+            case "truncation":
+                return new TruncationSelection();
+            case "tournament":
+                return new TournamentSelection();
+            case "steady":
+                return new SteadyStateSelection(Math.max(1, nbMachines / 10));
+            default:
+                System.out.println("Unknown selection " + name + "; use truncation, tournament or steady.");
+                return null;
+        }
+    }
+}
@@ -2,12 +2,11 @@
 
  A block is essentially an oriented 2d-rectangle.
  */
-import java.awt.Color;
-import java.awt.Graphics;
 
 public class Block extends Solid {
 
     private double angle;
+    private double cos, sin; // Of the angle, which never changes.
     private double width, height;
 
     /* Value between 0 and 1.
@@ -19,48 +18,67 @@ public class Block extends Solid {
     public Block(double x, double y, double width, double height, double angle) {
         super(x, y);
         this.angle = angle;
+        this.cos = Math.cos(angle);
+        this.sin = Math.sin(angle);
         this.width = width;
         this.height = height;
         this.elasticity = .0;
     }
 
-    public void display(Graphics g,
-            double x0, double y0, double zoom,
-            int panelHeight) {
+    public void setElasticity(double param) {
+        this.elasticity = param;
+    }
 
-        super.display(g, x0, y0, zoom, panelHeight);
+    public double getAngle() {
+        return this.angle;
+    }
 
-        /* The coordinates of the 4 points (A, B, C, D) are computed when needed. */
-        double s = Math.sin(this.angle);
-        double c = Math.cos(this.angle);
-        double h = this.height / 2;
-        double w = this.width / 2;
-
-        /* Coordinates in the real world. */
-        double ax = -h * s + w * c + this.getX();
-        double ay = h * c + w * s + this.getY();
-        double bx = -h * s - w * c + this.getX();
-        double by = h * c - w * s + this.getY();
-        double cx = -w * c + h * s + this.getX();
-        double cy = -w * s - h * c + this.getY();
-        double dx = h * s + w * c + this.getX();
-        double dy = -h * c + w * s + this.getY();
-
-        /* Tables of the coordinates converted into panel world. */
-        int tabX[] = {(int) (zoom * ax + x0),
-            (int) (zoom * bx + x0),
-            (int) (zoom * cx + x0),
-            (int) (zoom * dx + x0)};
-        int tabY[] = {(int) (panelHeight - (zoom * ay + y0)),
-            (int) (panelHeight - (zoom * by + y0)),
-            (int) (panelHeight - (zoom * cy + y0)),
-            (int) (panelHeight - (zoom * dy + y0))};
-
-        g.setColor(Color.BLACK);
-        g.fillPolygon(tabX, tabY, 4);
-
-        g.setColor(Color.WHITE);
-        g.drawPolygon(tabX, tabY, 4);
+    public double getCos() {
+        return this.cos;
+    }
+
+    public double getSin() {
+        return this.sin;
+    }
+
+    public double getWidth() {
+        return this.width;
+    }
+
+    public double getHeight() {
+        return this.height;
+    }
+
+    public double getElasticity() {
+        return this.elasticity;
+    }
+
+    /* Half-dimensions of the axis-aligned bounding box of the block. */
+    private double getHalfBoxWidth() {
+        return Math.abs(this.width / 2 * Math.cos(this.angle)) + Math.abs(this.height / 2 * Math.sin(this.angle));
+    }
+
+    private double getHalfBoxHeight() {
+        return Math.abs(this.width / 2 * Math.sin(this.angle)) + Math.abs(this.height / 2 * Math.cos(this.angle));
+    }
+
+    /**
+     * Bounds of the axis-aligned box that contains the whole block.
+     */
+    public double getXMin() {
+        return this.getX() - this.getHalfBoxWidth();
+    }
+
+    public double getXMax() {
+        return this.getX() + this.getHalfBoxWidth();
+    }
+
+    public double getYMin() {
+        return this.getY() - this.getHalfBoxHeight();
+    }
+
+    public double getYMax() {
+        return this.getY() + this.getHalfBoxHeight();
     }
 
     public void collide(Machine m, double dt) {
@@ -237,12 +255,13 @@ public class Block extends Solid {
          p.x - this.x = xConv*c - yConv*s;
          p.y - this.y = xConv*s + yConv*c;
          */
-        p.setPos((xConv * c - yConv * s) + this.getX(),
-                (xConv * s + yConv * c) + this.getY());
-
-        p.setSpeed((vxConv * c - vyConv * s),
-                (vxConv * s + vyConv * c));
+        /* Without contact, the point is left untouched. */
         if (collisionHappens) {
+            p.setPos((xConv * c - yConv * s) + this.getX(),
+                    (xConv * s + yConv * c) + this.getY());
+
+            p.setSpeed((vxConv * c - vyConv * s),
+                    (vxConv * s + vyConv * c));
             p.setColliding(true);
         }
     }
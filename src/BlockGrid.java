@@ -0,0 +1,168 @@
+/* Broad phase for the collisions between points and blocks.
+
+ The blocks never move, so they are sorted once into a uniform grid:
+ each cell knows the blocks whose bounding box, enlarged by a margin,
+ overlaps it. A point whose radius does not exceed that margin can then
+ only touch the blocks of the cell that contains its center.
+ */
+import java.util.ArrayList;
+
+public class BlockGrid {
+
+    private static int NB_CELLS_MAX = 256; // Maximum number of cells on each axis.
+    private static int NB_CELLS_PER_POINT_MAX = 4; // Cells visited by a point that is pushed around.
+
+    private Block[] blocks;
+    private double margin;
+
+    private double xMin, yMin; // Lower-left corner of the grid
+    private double cellSize;
+    private int nbCols, nbLines;
+
+    /* The blocks of cell c are blocks[cellBlocks[k]] for cellStart[c] <= k < cellStart[c + 1],
+     in increasing order of their index in the block list. */
+    private int[] cellStart;
+    private int[] cellBlocks;
+
+    public BlockGrid(ArrayList<Block> blockList, double margin, double cellSize) {
+        this.blocks = blockList.toArray(new Block[0]);
+        this.margin = margin;
+
+        if (this.blocks.length == 0) {
+            this.nbCols = 0;
+            this.nbLines = 0;
+            this.cellStart = new int[1];
+            this.cellBlocks = new int[0];
+            return;
+        }
+
+        /* Bounds of the grid: union of the enlarged bounding boxes. */
+        this.xMin = Double.POSITIVE_INFINITY;
+        this.yMin = Double.POSITIVE_INFINITY;
+        double xMax = Double.NEGATIVE_INFINITY;
+        double yMax = Double.NEGATIVE_INFINITY;
+        for (Block b : this.blocks) {
+            this.xMin = Math.min(this.xMin, b.getXMin() - margin);
+            this.yMin = Math.min(this.yMin, b.getYMin() - margin);
+            xMax = Math.max(xMax, b.getXMax() + margin);
+            yMax = Math.max(yMax, b.getYMax() + margin);
+        }
+        this.cellSize = Math.max(cellSize,
+                Math.max(xMax - this.xMin, yMax - this.yMin) / NB_CELLS_MAX);
+        this.nbCols = (int) Math.ceil((xMax - this.xMin) / this.cellSize) + 1;
+        this.nbLines = (int) Math.ceil((yMax - this.yMin) / this.cellSize) + 1;
+
+        /* First pass counts the blocks of each cell, second pass fills them in. */
+        this.cellStart = new int[this.nbCols * this.nbLines + 1];
+        for (int pass = 0; pass < 2; pass++) {
+            int[] fill = null;
+            if (pass == 1) {
+                for (int c = 0; c < this.nbCols * this.nbLines; c++) {
+                    this.cellStart[c + 1] += this.cellStart[c];
+                }
+                this.cellBlocks = new int[this.cellStart[this.nbCols * this.nbLines]];
+                fill = new int[this.nbCols * this.nbLines];
+            }
+            for (int k = 0; k < this.blocks.length; k++) {
+                Block b = this.blocks[k];
+                int col0 = this.getCol(b.getXMin() - margin);
+                int col1 = this.getCol(b.getXMax() + margin);
+                int line0 = this.getLine(b.getYMin() - margin);
+                int line1 = this.getLine(b.getYMax() + margin);
+                for (int line = line0; line <= line1; line++) {
+                    for (int col = col0; col <= col1; col++) {
+                        int c = line * this.nbCols + col;
+                        if (pass == 0) {
+                            this.cellStart[c + 1]++;
+                        } else {
+                            this.cellBlocks[this.cellStart[c] + fill[c]] = k;
+                            fill[c]++;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public BlockGrid(ArrayList<Block> blockList, double margin) {
+        this(blockList, margin, 5);
+    }
+
+    /**
+     * Column of the grid that contains the given abscissa; locations outside
+     * the grid are clamped to the border columns.
+     */
+    public int getCol(double x) {
+        return Math.min(Math.max((int) ((x - this.xMin) / this.cellSize), 0), this.nbCols - 1);
+    }
+
+    public int getLine(double y) {
+        return Math.min(Math.max((int) ((y - this.yMin) / this.cellSize), 0), this.nbLines - 1);
+    }
+
+    /**
+     * Index of the cell that contains the given location, or -1 when it is
+     * outside the grid (and thus cannot touch any block).
+     */
+    public int getCell(double x, double y) {
+        double col = (x - this.xMin) / this.cellSize;
+        double line = (y - this.yMin) / this.cellSize;
+        if (!(col >= 0 && col < this.nbCols && line >= 0 && line < this.nbLines)) {
+            return -1;
+        }
+        return (int) line * this.nbCols + (int) col;
+    }
+
+    public int getCell(int col, int line) {
+        return line * this.nbCols + col;
+    }
+
+    public boolean isEmpty() {
+        return this.blocks.length == 0;
+    }
+
+    public int getNbBlocks(int cell) {
+        return this.cellStart[cell + 1] - this.cellStart[cell];
+    }
+
+    public Block getBlock(int cell, int rank) {
+        return this.blocks[this.cellBlocks[this.cellStart[cell] + rank]];
+    }
+
+    public double getMargin() {
+        return this.margin;
+    }
+
+    /**
+     * Collide the point against the blocks it may touch, in the same order as
+     * the block list. When a block pushes the point into another cell, the
+     * blocks of that cell are tested too; testing a block again does nothing
+     * if the point does not touch it any more.
+     */
+    public void collide(Point p, double dt) {
+        if (p.getRadius() > this.margin) {
+            // The grid was not built for points that large: test every block.
+            for (int k = 0; k < this.blocks.length; k++) {
+                this.blocks[k].collide(p, dt);
+            }
+            return;
+        }
+        int cell = this.getCell(p.getX(), p.getY());
+        for (int n = 0; n < NB_CELLS_PER_POINT_MAX && cell >= 0; n++) {
+            for (int k = this.cellStart[cell]; k < this.cellStart[cell + 1]; k++) {
+                this.blocks[this.cellBlocks[k]].collide(p, dt);
+            }
+            int newCell = this.getCell(p.getX(), p.getY());
+            if (newCell == cell) {
+                return;
+            }
+            cell = newCell;
+        }
+    }
+
+    public void collide(Machine m, double dt) {
+        for (int i = 0; i < m.getNbPoints(); i++) {
+            this.collide(m.getPoint(i), dt);
+        }
+    }
+}
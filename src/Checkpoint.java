@@ -0,0 +1,262 @@
+/* Binary checkpoint of a whole run: the world (blocks, gravity, date, machines with
+ their points and springs) and the state of the genetic algorithm.
+
+ A Checkpoint object is a copy of the run, taken between two steps of the simulation;
+ it can then be written from another thread while the simulation goes on.
+ The file is written and read through a MappedByteBuffer: its size is computed
+ first, then every value is copied directly into the mapped pages.
+ The file is first written next to the destination, flushed to the disk, then
+ renamed over the destination, so that a crash or a full disk during the save
+ leaves the previous checkpoint intact.
+
+ Format (big-endian):
+ int MAGIC, int VERSION,
+ double date, double gx, double gy, byte gravityActive,
+ int stepsPerGeneration, int generation, int step,
+ int nbBlocks, then for each block: x, y, width, height, angle, elasticity (doubles),
+ int nbMachines, then for each machine:
+ double gx, double gy,
+ int nbPoints, then for each point: x, y, vx, vy, radius, mass (doubles),
+ int nbSprings, then for each spring: int start, int end (-1 when missing),
+ l0, strength, damping, prevLength (doubles).
+ */
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class Checkpoint {
+
+    private static final int MAGIC = 0x4d414348; // "MACH"
+    private static final int VERSION = 1;
+
+    private static final int BLOCK_SIZE = 6 * 8;
+    private static final int POINT_SIZE = 6 * 8;
+    private static final int SPRING_SIZE = 2 * 4 + 4 * 8;
+    private static final int BLOCK_STRIDE = 6;
+
+    private double date;
+    private double gx, gy;
+    private boolean gravityActive;
+    private int stepsPerGeneration;
+    private int generation;
+    private int step;
+    private int nbBlocks;
+    private double[] blocks; // x, y, width, height, angle, elasticity of each block.
+    private double[] machineGravity; // gx, gy of each machine.
+    private Genome[] genomes;
+
+    /**
+     * Copy the world of the scheduler and the state of the scheduler. Must be
+     * called from the thread that runs the simulation, between two steps.
+     *
+     * @param scheduler
+     */
+    public Checkpoint(GenerationScheduler scheduler) {
+        World world = scheduler.getWorld();
+        this.date = world.getDate();
+        this.gx = world.getGx();
+        this.gy = world.getGy();
+        this.gravityActive = world.isGravityActive();
+        this.stepsPerGeneration = scheduler.getStepsPerGeneration();
+        this.generation = scheduler.getGeneration();
+        this.step = scheduler.getStep();
+
+        this.nbBlocks = world.getNbBlocks();
+        this.blocks = new double[this.nbBlocks * BLOCK_STRIDE];
+        for (int j = 0; j < this.nbBlocks; j++) {
+            Block b = world.getBlock(j);
+            this.blocks[j * BLOCK_STRIDE] = b.getX();
+            this.blocks[j * BLOCK_STRIDE + 1] = b.getY();
+            this.blocks[j * BLOCK_STRIDE + 2] = b.getWidth();
+            this.blocks[j * BLOCK_STRIDE + 3] = b.getHeight();
+            this.blocks[j * BLOCK_STRIDE + 4] = b.getAngle();
+            this.blocks[j * BLOCK_STRIDE + 5] = b.getElasticity();
+        }
+
+        int nbMachines = world.getNbMachines();
+        this.machineGravity = new double[2 * nbMachines];
+        this.genomes = new Genome[nbMachines];
+        for (int i = 0; i < nbMachines; i++) {
+            Machine m = world.getMachine(i);
+            this.machineGravity[2 * i] = m.getGx();
+            this.machineGravity[2 * i + 1] = m.getGy();
+            this.genomes[i] = m.getGenome();
+        }
+    }
+
+    public int getNbMachines() {
+        return this.genomes.length;
+    }
+
+    /**
+     * Write the world of the scheduler and the state of the scheduler. Must be
+     * called from the thread that runs the simulation, between two steps.
+     *
+     * @param scheduler
+     * @param path
+     * @throws IOException
+     */
+    public static void save(GenerationScheduler scheduler, String path) throws IOException {
+        new Checkpoint(scheduler).write(path);
+    }
+
+    /**
+     * Write this copy of the run; may be called from any thread, but only one
+     * write to a given path may run at a time.
+     *
+     * @param path
+     * @throws IOException
+     */
+    public void write(String path) throws IOException {
+        long size = 4 + 4 + 3 * 8 + 1 + 3 * 4;
+        size += 4 + (long) this.nbBlocks * BLOCK_SIZE;
+        size += 4;
+        for (Genome g : this.genomes) {
+            size += 2 * 8 + 4 + (long) g.getNbPoints() * POINT_SIZE + 4 + (long) g.getNbSprings() * SPRING_SIZE;
+        }
+
+        Path file = Paths.get(path).toAbsolutePath();
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+                buffer.putInt(MAGIC);
+                buffer.putInt(VERSION);
+                buffer.putDouble(this.date);
+                buffer.putDouble(this.gx);
+                buffer.putDouble(this.gy);
+                buffer.put((byte) (this.gravityActive ? 1 : 0));
+                buffer.putInt(this.stepsPerGeneration);
+                buffer.putInt(this.generation);
+                buffer.putInt(this.step);
+
+                buffer.putInt(this.nbBlocks);
+                for (int k = 0; k < this.blocks.length; k++) {
+                    buffer.putDouble(this.blocks[k]);
+                }
+
+                buffer.putInt(this.genomes.length);
+                for (int i = 0; i < this.genomes.length; i++) {
+                    buffer.putDouble(this.machineGravity[2 * i]);
+                    buffer.putDouble(this.machineGravity[2 * i + 1]);
+                    writeGenome(buffer, this.genomes[i]);
+                }
+                buffer.force();
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    private static void writeGenome(MappedByteBuffer buffer, Genome g) {
+        buffer.putInt(g.getNbPoints());
+        for (int j = 0; j < g.getNbPoints(); j++) {
+            buffer.putDouble(g.getX(j));
+            buffer.putDouble(g.getY(j));
+            buffer.putDouble(g.getSpeedX(j));
+            buffer.putDouble(g.getSpeedY(j));
+            buffer.putDouble(g.getRadius(j));
+            buffer.putDouble(g.getMass(j));
+        }
+        buffer.putInt(g.getNbSprings());
+        for (int j = 0; j < g.getNbSprings(); j++) {
+            buffer.putInt(g.getStart(j));
+            buffer.putInt(g.getEnd(j));
+            buffer.putDouble(g.getL0(j));
+            buffer.putDouble(g.getStrength(j));
+            buffer.putDouble(g.getDamping(j));
+            buffer.putDouble(g.getPrevLength(j));
+        }
+    }
+
+    /**
+     * Read a checkpoint written by save().
+     *
+     * @param path
+     * @return a scheduler, in the same state as the saved one, and its world
+     * @throws IOException when the file cannot be read or is not a checkpoint
+     */
+    public static GenerationScheduler load(String path) throws IOException {
+        Path file = Paths.get(path);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(path + " is not a checkpoint.");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unknown checkpoint version " + version + " in " + path);
+            }
+
+            World world = new World(0);
+            world.setDate(buffer.getDouble());
+            double gx = buffer.getDouble();
+            double gy = buffer.getDouble();
+            world.setGravity(gx, gy, buffer.get() != 0);
+            int stepsPerGeneration = buffer.getInt();
+            int generation = buffer.getInt();
+            int step = buffer.getInt();
+
+            world.clearBlocks();
+            int nbBlocks = buffer.getInt();
+            for (int j = 0; j < nbBlocks; j++) {
+                double x = buffer.getDouble();
+                double y = buffer.getDouble();
+                double width = buffer.getDouble();
+                double height = buffer.getDouble();
+                double angle = buffer.getDouble();
+                Block b = new Block(x, y, width, height, angle);
+                b.setElasticity(buffer.getDouble());
+                world.addBlock(b);
+            }
+
+            int nbMachines = buffer.getInt();
+            for (int i = 0; i < nbMachines; i++) {
+                world.addMachine(readMachine(buffer));
+            }
+
+            GenerationScheduler scheduler = new GenerationScheduler(world, stepsPerGeneration);
+            scheduler.restore(generation, step);
+            return scheduler;
+        } catch (BufferUnderflowException e) {
+            throw new IOException(path + " is truncated.");
+        }
+    }
+
+    private static Machine readMachine(MappedByteBuffer buffer) {
+        double gx = buffer.getDouble();
+        double gy = buffer.getDouble();
+
+        /* The layout of the file is the same as the layout of the genome. */
+        int nbPoints = buffer.getInt();
+        double[] points = new double[nbPoints * Genome.POINT_STRIDE];
+        buffer.asDoubleBuffer().get(points);
+        buffer.position(buffer.position() + 8 * points.length);
+
+        int nbSprings = buffer.getInt();
+        int[] ends = new int[2 * nbSprings];
+        double[] springs = new double[nbSprings * Genome.SPRING_STRIDE];
+        for (int j = 0; j < nbSprings; j++) {
+            ends[2 * j] = buffer.getInt();
+            ends[2 * j + 1] = buffer.getInt();
+            for (int k = 0; k < Genome.SPRING_STRIDE; k++) {
+                springs[j * Genome.SPRING_STRIDE + k] = buffer.getDouble();
+            }
+        }
+
+        Machine m = new Machine(new Genome(nbPoints, points, nbSprings, ends, springs));
+        m.setGravity(gx, gy);
+        return m;
+    }
+}
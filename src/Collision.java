@@ -1,4 +1,4 @@
-public class Collision{
+public class Collision implements Comparable<Collision> {
 
 	private Solid solid0;
 	private Solid solid1;
@@ -6,19 +6,192 @@ public class Collision{
 	private double date; /* Negative value: Collision in the past or no collision at all;
 				Positive value: collision in the future. */
 
+	/* Date at which the position of solid0 was read to predict this collision;
+	   the solid moves in a straight line from that date until the collision. */
+	private double startDate;
+
+	/* Normal of the contact, pointing from solid1 towards solid0. */
+	private double nx, ny;
+
+	/* Used by the world to know whether this collision is still valid:
+	   the stamp must still be the current stamp of the point of the given index. */
+	private int index;
+	private int stamp;
+	/* Same for the second point, in collisions between two points. */
+	private int index1;
+	private int stamp1;
+
 	public Collision(Solid s0, Solid s1){
+		this(s0, s1, 0, Double.POSITIVE_INFINITY);
+	}
+
+	/* Collision that may happen between startDate and endDate. */
+	public Collision(Solid s0, Solid s1, double startDate, double endDate){
+		this.set(s0, s1, startDate, endDate);
+	}
+
+	/* Reuse this object for another pair of solids (see CollisionPool). */
+	public void set(Solid s0, Solid s1, double startDate, double endDate){
 
 		this.solid0 = s0;
 		this.solid1 = s1;
+		this.startDate = startDate;
 
-		this.computeDate();
+		this.computeDate(endDate);
 	}
 
 	/* This function determines whether the collision will actually happen;
 	   if so, it sets the date of the collision. */
-	private void computeDate(){
+	private void computeDate(double endDate){
 		this.date = -1; // default value.
-		// TODO
+		if(this.solid0 instanceof Point && this.solid1 instanceof Block){
+			this.computeDateWithBlock((Point)this.solid0, (Block)this.solid1, endDate);
+		}
+		else if(this.solid0 instanceof Point && this.solid1 instanceof Point){
+			this.computeDateWithPoint((Point)this.solid0, (Point)this.solid1, endDate);
+		}
+	}
+
+	/* Time of impact of two points moving in straight lines:
+	   the distance between their centers reaches the sum of their radii. */
+	private void computeDateWithPoint(Point p0, Point p1, double endDate){
+		double qx = p0.getX() - p1.getX();
+		double qy = p0.getY() - p1.getY();
+		double vx = p0.getSpeedX() - p1.getSpeedX();
+		double vy = p0.getSpeedY() - p1.getSpeedY();
+		double r = p0.getRadius() + p1.getRadius();
+
+		double a = vx * vx + vy * vy;
+		double b = qx * vx + qy * vy;
+		double c = qx * qx + qy * qy - r * r;
+		if(a == 0 || b >= 0){
+			// Not moving towards each other.
+			return;
+		}
+		double t = 0; // Already touching.
+		if(c > 0){
+			double disc = b * b - a * c;
+			if(disc < 0){
+				return;
+			}
+			t = (-b - Math.sqrt(disc)) / a;
+		}
+		if(t > endDate - this.startDate){
+			return;
+		}
+		double mx = qx + vx * t;
+		double my = qy + vy * t;
+		double norm = Math.sqrt(mx * mx + my * my);
+		if(norm == 0){
+			return;
+		}
+		this.date = this.startDate + t;
+		this.nx = mx / norm;
+		this.ny = my / norm;
+	}
+
+	/* Time of impact of a point moving in a straight line on a block.
+	   In the referential of the block, the center of the point hits
+	   either one of the four faces pushed outwards by the radius,
+	   or a circle of the same radius around one of the four corners. */
+	private void computeDateWithBlock(Point p, Block b, double endDate){
+
+		double c = Math.cos(b.getAngle());
+		double s = Math.sin(b.getAngle());
+		double px = (p.getX() - b.getX()) * c + (p.getY() - b.getY()) * s;
+		double py = -(p.getX() - b.getX()) * s + (p.getY() - b.getY()) * c;
+		double vx = p.getSpeedX() * c + p.getSpeedY() * s;
+		double vy = -p.getSpeedX() * s + p.getSpeedY() * c;
+		double w = b.getWidth() / 2;
+		double h = b.getHeight() / 2;
+		double r = p.getRadius();
+		double duration = endDate - this.startDate;
+
+		double tMin = Double.POSITIVE_INFINITY;
+		double nxLocal = 0, nyLocal = 0;
+		double t;
+
+		/* Faces: right, left, top, bottom. */
+		t = faceDate(px - w, vx, py, vy, h, r, duration);
+		if(t < tMin){ tMin = t; nxLocal = 1; nyLocal = 0; }
+		t = faceDate(-px - w, -vx, py, vy, h, r, duration);
+		if(t < tMin){ tMin = t; nxLocal = -1; nyLocal = 0; }
+		t = faceDate(py - h, vy, px, vx, w, r, duration);
+		if(t < tMin){ tMin = t; nxLocal = 0; nyLocal = 1; }
+		t = faceDate(-py - h, -vy, px, vx, w, r, duration);
+		if(t < tMin){ tMin = t; nxLocal = 0; nyLocal = -1; }
+
+		/* Corners. */
+		for(int k=0; k<4; k++){
+			double sx = (k == 0 || k == 3) ? 1 : -1;
+			double sy = (k < 2) ? 1 : -1;
+			double qx = px - sx * w;
+			double qy = py - sy * h;
+			t = cornerDate(qx, qy, vx, vy, sx, sy, r, duration);
+			if(t < tMin){
+				double mx = qx + vx * t;
+				double my = qy + vy * t;
+				double norm = Math.sqrt(mx * mx + my * my);
+				if(norm == 0){
+					// Center exactly on the corner: no defined normal.
+					continue;
+				}
+				tMin = t;
+				nxLocal = mx / norm;
+				nyLocal = my / norm;
+			}
+		}
+
+		if(tMin <= duration){
+			this.date = this.startDate + tMin;
+			/* Normal expressed back in the world referential. */
+			this.nx = nxLocal * c - nyLocal * s;
+			this.ny = nxLocal * s + nyLocal * c;
+		}
+	}
+
+	/* Date at which a circle reaches a face, or infinity.
+	   d: distance from the face to the center (along the outward normal),
+	   vn: normal speed, u and vu: tangential position and speed, halfLength: half the length of the face. */
+	private static double faceDate(double d, double vn, double u, double vu,
+				       double halfLength, double r, double duration){
+		if(vn >= 0 || d < 0){
+			// Moving away, or center already behind the face.
+			return Double.POSITIVE_INFINITY;
+		}
+		double t = 0; // Already touching.
+		if(d >= r){
+			t = (r - d) / vn;
+		}
+		if(t > duration || Math.abs(u + vu * t) > halfLength){
+			return Double.POSITIVE_INFINITY;
+		}
+		return t;
+	}
+
+	/* Date at which a circle reaches a corner, or infinity.
+	   (qx, qy): center relative to the corner; (sx, sy): outward directions of that corner. */
+	private static double cornerDate(double qx, double qy, double vx, double vy,
+					 double sx, double sy, double r, double duration){
+		double a = vx * vx + vy * vy;
+		double b = qx * vx + qy * vy;
+		double c = qx * qx + qy * qy - r * r;
+		if(a == 0 || b >= 0){
+			return Double.POSITIVE_INFINITY;
+		}
+		double t = 0; // Already touching.
+		if(c > 0){
+			double disc = b * b - a * c;
+			if(disc < 0){
+				return Double.POSITIVE_INFINITY;
+			}
+			t = (-b - Math.sqrt(disc)) / a;
+		}
+		/* The contact is on the corner only if it happens outside of both face ranges. */
+		if(t > duration || (qx + vx * t) * sx < 0 || (qy + vy * t) * sy < 0){
+			return Double.POSITIVE_INFINITY;
+		}
+		return t;
 	}
 
 	public double getDate(){
@@ -29,13 +202,83 @@ public class Collision{
 	public boolean happensSoonerThan(Collision other){
 		return this.date < other.date;
 	}
-	
+
+	@Override
+	public int compareTo(Collision other){
+		return Double.compare(this.date, other.date);
+	}
+
+	public Solid getSolid0(){
+		return this.solid0;
+	}
+
+	public Solid getSolid1(){
+		return this.solid1;
+	}
+
+	public void setStamp(int index, int stamp){
+		this.index = index;
+		this.stamp = stamp;
+	}
+
+	public void setStamps(int index0, int stamp0, int index1, int stamp1){
+		this.setStamp(index0, stamp0);
+		this.index1 = index1;
+		this.stamp1 = stamp1;
+	}
+
+	public int getIndex(){
+		return this.index;
+	}
+
+	public int getStamp(){
+		return this.stamp;
+	}
+
+	public int getIndex1(){
+		return this.index1;
+	}
+
+	public int getStamp1(){
+		return this.stamp1;
+	}
+
 
 	/* Solve the collision.
-	   - Step 1): bring the two colliding solids together by having the world evolve;
-	   - Step 2): change the speeds of the two involved solids.
+	   - Step 1): bring the point to the contact, by moving it along its speed until the date of the collision;
+	   - Step 2): remove (or reflect, depending on the elasticity) the normal component of its speed.
+	   Between two points, only the speeds are modified: the normal components of the two speeds
+	   become equal, and the momentum of the pair is conserved.
 	*/
-	public void solve(World w){
+	public void solve(){
+		if(this.solid0 instanceof Point && this.solid1 instanceof Point){
+			Point p0 = (Point)this.solid0;
+			Point p1 = (Point)this.solid1;
+			double vn = (p0.getSpeedX() - p1.getSpeedX()) * this.nx
+				+ (p0.getSpeedY() - p1.getSpeedY()) * this.ny;
+			if(vn < 0 && p0.getMass() > 0 && p1.getMass() > 0){
+				double impulse = -vn / (1 / p0.getMass() + 1 / p1.getMass());
+				p0.setSpeed(p0.getSpeedX() + impulse / p0.getMass() * this.nx,
+					    p0.getSpeedY() + impulse / p0.getMass() * this.ny);
+				p1.setSpeed(p1.getSpeedX() - impulse / p1.getMass() * this.nx,
+					    p1.getSpeedY() - impulse / p1.getMass() * this.ny);
+			}
+			p0.setColliding(true);
+			p1.setColliding(true);
+			return;
+		}
+		if(this.solid0 instanceof Point && this.solid1 instanceof Block){
+			Point p = (Point)this.solid0;
+			double elasticity = ((Block)this.solid1).getElasticity();
+			double dt = this.date - this.startDate;
+			p.translate(dt * p.getSpeedX(), dt * p.getSpeedY());
 
+			double vn = p.getSpeedX() * this.nx + p.getSpeedY() * this.ny;
+			if(vn < 0){
+				p.setSpeed(p.getSpeedX() - (1 + elasticity) * vn * this.nx,
+					   p.getSpeedY() - (1 + elasticity) * vn * this.ny);
+			}
+			p.setColliding(true);
+		}
 	}
 }
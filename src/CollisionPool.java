@@ -0,0 +1,38 @@
+/* Free list of Collision objects, so that looking for collisions at each step
+ does not allocate: a collision is taken from the pool for each candidate,
+ and given back once it has been discarded or solved. */
+import java.util.ArrayList;
+
+public class CollisionPool {
+
+    private ArrayList<Collision> free;
+
+    public CollisionPool() {
+        this.free = new ArrayList<>();
+    }
+
+    /**
+     * A collision between the two solids, that may happen between startDate
+     * and endDate; its date is negative when it does not happen.
+     *
+     * @param s0
+     * @param s1
+     * @param startDate
+     * @param endDate
+     * @return
+     */
+    public Collision obtain(Solid s0, Solid s1, double startDate, double endDate) {
+        int n = this.free.size();
+        if (n == 0) {
+            return new Collision(s0, s1, startDate, endDate);
+        }
+        Collision res = this.free.remove(n - 1);
+        res.set(s0, s1, startDate, endDate);
+        return res;
+    }
+
+    /* The collision must not be used any more by the caller. */
+    public void release(Collision c) {
+        this.free.add(c);
+    }
+}
@@ -0,0 +1,240 @@
+/* Evaluation farm: the machines of a generation are evolved in worker JVMs, started
+ on the same computer, instead of in the JVM of the simulation.
+
+ Each worker is a separate process ("java Evaluator integrator"), with its own heap
+ and its own garbage collector; it talks to the master through its stdin and stdout.
+ For each generation, the master sends to each worker a part of the machines, as
+ genomes, with the settings of the world; the worker evolves them for the
+ requested number of steps in a world of its own, then sends back the genome of
+ each machine in its final state. The master then reads the scores from these
+ machines, as if they had been evolved locally.
+
+ Request: int nbSteps, double dt, double gx, double gy, byte gravityActive,
+ byte continuousCollisions, byte selfCollisions, byte storeMode,
+ int nbBlocks, then for each block: x, y, width, height, angle, elasticity (doubles),
+ int nbMachines, then for each machine its genome.
+ Reply: int nbMachines, then for each machine its genome.
+ A worker stops when its stdin is closed.
+ */
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+public class Evaluator {
+
+    private Process[] workers;
+    private DataOutputStream[] requests;
+    private DataInputStream[] replies;
+
+    private static final long SHUTDOWN_TIMEOUT = 5; // Seconds given to a worker to stop.
+
+    /**
+     * Start the workers.
+     *
+     * @param nbWorkers
+     * @param integratorName the integrator of the workers: euler, verlet,
+     * implicit or xpbd
+     * @throws IOException when a worker cannot be started
+     */
+    public Evaluator(int nbWorkers, String integratorName) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classPath = System.getProperty("java.class.path");
+
+        this.workers = new Process[nbWorkers];
+        this.requests = new DataOutputStream[nbWorkers];
+        this.replies = new DataInputStream[nbWorkers];
+        for (int w = 0; w < nbWorkers; w++) {
+            ProcessBuilder builder = new ProcessBuilder(java, "-cp", classPath, "Evaluator", integratorName);
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            this.workers[w] = builder.start();
+            this.requests[w] = new DataOutputStream(new BufferedOutputStream(this.workers[w].getOutputStream()));
+            this.replies[w] = new DataInputStream(new BufferedInputStream(this.workers[w].getInputStream()));
+        }
+    }
+
+    public int getNbWorkers() {
+        return this.workers.length;
+    }
+
+    /**
+     * Evolve all the machines of the world for the given number of steps, on
+     * the workers. The machines of the world are replaced by their evolved
+     * state, once every worker has replied: when one fails, the world is left
+     * as it was. In arena mode the machines interact, so they are evolved
+     * locally.
+     *
+     * @param world
+     * @param nbSteps
+     * @param dt
+     * @throws IOException when a worker fails
+     */
+    public void evaluate(World world, int nbSteps, double dt) throws IOException {
+        if (world.isArenaMode()) {
+            for (int k = 0; k < nbSteps; k++) {
+                world.evolve(dt);
+            }
+            return;
+        }
+
+        int nbMachines = world.getNbMachines();
+        int nbWorkers = this.workers.length;
+
+        /* All the requests are sent before any reply is read, so that the workers
+         run at the same time. A worker reads its whole request before it
+         writes anything, so the pipes cannot block each other. */
+        for (int w = 0; w < nbWorkers; w++) {
+            int first = w * nbMachines / nbWorkers;
+            int last = (w + 1) * nbMachines / nbWorkers;
+            writeRequest(this.requests[w], world, first, last, nbSteps, dt);
+        }
+        Genome[] evolved = new Genome[nbMachines];
+        for (int w = 0; w < nbWorkers; w++) {
+            int first = w * nbMachines / nbWorkers;
+            int last = (w + 1) * nbMachines / nbWorkers;
+            int nbReplies = this.replies[w].readInt();
+            if (nbReplies != last - first) {
+                throw new IOException("Worker " + w + " sent " + nbReplies + " machines instead of " + (last - first));
+            }
+            for (int i = first; i < last; i++) {
+                evolved[i] = Genome.read(this.replies[w]);
+            }
+        }
+        for (int i = 0; i < nbMachines; i++) {
+            world.replaceMachine(i, new Machine(evolved[i]));
+        }
+        world.setDate(world.getDate() + nbSteps * dt);
+    }
+
+    private static void writeRequest(DataOutputStream out, World world, int first, int last,
+            int nbSteps, double dt) throws IOException {
+        out.writeInt(nbSteps);
+        out.writeDouble(dt);
+        out.writeDouble(world.getGx());
+        out.writeDouble(world.getGy());
+        out.writeByte(world.isGravityActive() ? 1 : 0);
+        out.writeByte(world.isContinuousCollisions() ? 1 : 0);
+        out.writeByte(world.isSelfCollisions() ? 1 : 0);
+        out.writeByte(world.isStoreMode() ? 1 : 0);
+
+        out.writeInt(world.getNbBlocks());
+        for (int j = 0; j < world.getNbBlocks(); j++) {
+            Block b = world.getBlock(j);
+            out.writeDouble(b.getX());
+            out.writeDouble(b.getY());
+            out.writeDouble(b.getWidth());
+            out.writeDouble(b.getHeight());
+            out.writeDouble(b.getAngle());
+            out.writeDouble(b.getElasticity());
+        }
+
+        out.writeInt(last - first);
+        for (int i = first; i < last; i++) {
+            world.getMachine(i).getGenome().write(out);
+        }
+        out.flush();
+    }
+
+    /**
+     * Stop the workers: they end when their stdin is closed. A worker that is
+     * still running after SHUTDOWN_TIMEOUT seconds (for instance in the middle
+     * of a request) is killed.
+     */
+    public void shutdown() {
+        for (int w = 0; w < this.workers.length; w++) {
+            try {
+                this.requests[w].close();
+            } catch (IOException e) {
+                // The worker has already stopped.
+            }
+        }
+        for (Process p : this.workers) {
+            try {
+                if (!p.waitFor(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                    p.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                p.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /* Worker: answer the requests of the master until stdin is closed. */
+    public static void main(String args[]) {
+
+        String integratorName = "euler";
+        if (args.length > 0) {
+            integratorName = args[0];
+        }
+
+        /* The replies use stdout; anything printed by the simulation goes to stderr. */
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(new PrintStream(new FileOutputStream(FileDescriptor.err), true));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+
+        try {
+            while (true) {
+                int nbSteps;
+                try {
+                    nbSteps = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                double dt = in.readDouble();
+                double gx = in.readDouble();
+                double gy = in.readDouble();
+                boolean gravityActive = in.readByte() != 0;
+
+                World world = new World(0);
+                world.setGravity(gx, gy, gravityActive);
+                world.setContinuousCollisions(in.readByte() != 0);
+                world.setSelfCollisions(in.readByte() != 0);
+                world.setStoreMode(in.readByte() != 0);
+                Integrator integrator = BatchRunner.createIntegrator(integratorName, world);
+                if (integrator != null) {
+                    world.setIntegrator(integrator);
+                }
+
+                world.clearBlocks();
+                int nbBlocks = in.readInt();
+                for (int j = 0; j < nbBlocks; j++) {
+                    double x = in.readDouble();
+                    double y = in.readDouble();
+                    double width = in.readDouble();
+                    double height = in.readDouble();
+                    double angle = in.readDouble();
+                    Block b = new Block(x, y, width, height, angle);
+                    b.setElasticity(in.readDouble());
+                    world.addBlock(b);
+                }
+
+                int nbMachines = in.readInt();
+                for (int i = 0; i < nbMachines; i++) {
+                    Machine m = new Machine(Genome.read(in));
+                    m.setGravity(gravityActive ? gx : 0, gravityActive ? gy : 0);
+                    world.addMachine(m);
+                }
+
+                for (int k = 0; k < nbSteps; k++) {
+                    world.evolve(dt);
+                }
+
+                out.writeInt(world.getNbMachines());
+                for (int i = 0; i < world.getNbMachines(); i++) {
+                    world.getMachine(i).getGenome().write(out);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.out.println("Worker stopped: " + e.getMessage());
+        }
+    }
+}
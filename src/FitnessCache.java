@@ -0,0 +1,122 @@
+/* Memoization of the evaluation of the machines.
+
+ A generation evolves each machine for a number of steps from its current state,
+ and the score is then read from the final state. When the machines do not interact
+ (no arena mode), the final state only depends on the initial state of the machine
+ (positions, speeds, masses, radii, spring parameters), on the number of steps and on
+ dt, for given world settings: the result of an evaluation can be reused for
+ any identical machine, e.g. a clone made by World.breed that was not changed by
+ the mutation, instead of being simulated again.
+
+ The key is the genome of the machine, compared value by value (the hash is computed
+ once from the bits of all its values), with the number of steps and dt.
+ The least recently used entries are evicted when the capacity is reached.
+ The cache must be cleared when the settings of the world change (gravity,
+ blocks, collisions, integrator).
+ */
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class FitnessCache {
+
+    private int capacity;
+    private LinkedHashMap<Key, Genome> entries;
+
+    private long nbHits;
+    private long nbMisses;
+
+    private static class Key {
+
+        private Genome genome;
+        private int nbSteps;
+        private double dt;
+        private int hash;
+
+        public Key(Genome genome, int nbSteps, double dt) {
+            this.genome = genome;
+            this.nbSteps = nbSteps;
+            this.dt = dt;
+            this.hash = 31 * (31 * genome.hashCode() + nbSteps) + Double.hashCode(dt);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return this.hash == other.hash
+                    && this.nbSteps == other.nbSteps
+                    && Double.compare(this.dt, other.dt) == 0
+                    && this.genome.equals(other.genome);
+        }
+    }
+
+    public FitnessCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.entries = new LinkedHashMap<Key, Genome>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Genome> eldest) {
+                return this.size() > FitnessCache.this.capacity;
+            }
+        };
+        this.nbHits = 0;
+        this.nbMisses = 0;
+    }
+
+    /**
+     * The final state of a machine that was evolved from the given state.
+     *
+     * @param initial
+     * @param nbSteps
+     * @param dt
+     * @return the final state, or null when it is not known
+     */
+    public Genome get(Genome initial, int nbSteps, double dt) {
+        Genome res = this.entries.get(new Key(initial, nbSteps, dt));
+        if (res != null) {
+            this.nbHits++;
+        } else {
+            this.nbMisses++;
+        }
+        return res;
+    }
+
+    /**
+     * Remember the result of an evaluation. Both genomes now belong to the
+     * cache and must not be modified.
+     *
+     * @param initial
+     * @param nbSteps
+     * @param dt
+     * @param result
+     */
+    public void put(Genome initial, int nbSteps, double dt, Genome result) {
+        this.entries.put(new Key(initial, nbSteps, dt), result);
+    }
+
+    public void clear() {
+        this.entries.clear();
+    }
+
+    public int getSize() {
+        return this.entries.size();
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    public long getNbHits() {
+        return this.nbHits;
+    }
+
+    public long getNbMisses() {
+        return this.nbMisses;
+    }
+}
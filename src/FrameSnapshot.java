@@ -0,0 +1,270 @@
+/* Immutable copy of everything that is drawn for one frame.
+
+ The snapshot is built by the simulation thread and then only read by the
+ renderer, so the two threads never share the mutable state of the world.
+ All the points (and all the springs) of all the machines are stored in flat arrays;
+ the points of machine i are those from getFirstPoint(i) to getFirstPoint(i + 1) - 1,
+ and the same goes for its springs.
+ */
+public final class FrameSnapshot {
+
+    private final double worldWidth, worldHeight;
+
+    /* Machines. */
+    private final int nbMachines;
+    private final int[] firstPoint;
+    private final int[] firstSpring;
+    private final double[] score;
+    private final double[] xMin, xMax, yMin, yMax; // Box of the points, radius included.
+    private final double[] xText, yText; // Where the score is written.
+
+    /* Points. */
+    private final double[] px, py, radius;
+    private final boolean[] colliding;
+
+    /* Springs, given by the coordinates of their two ends. */
+    private final double[] sx0, sy0, sx1, sy1;
+
+    /* Blocks. */
+    private final int nbBlocks;
+    private final double[] bx, by, bWidth, bHeight, bAngle;
+    private final double bxMin, bxMax, byMin, byMax; // Box of all the blocks.
+
+    public FrameSnapshot(World world) {
+
+        this.worldWidth = world.getWidth();
+        this.worldHeight = world.getHeight();
+
+        this.nbMachines = world.getNbMachines();
+        int nbPoints = 0;
+        int nbSprings = 0;
+        for (int i = 0; i < this.nbMachines; i++) {
+            Machine m = world.getMachine(i);
+            nbPoints += m.getNbPoints();
+            for (int j = 0; j < m.getNbSprings(); j++) {
+                if (m.getSpring(j).hasTwoEnds()) {
+                    nbSprings++;
+                }
+            }
+        }
+
+        this.firstPoint = new int[this.nbMachines + 1];
+        this.firstSpring = new int[this.nbMachines + 1];
+        this.score = new double[this.nbMachines];
+        this.xMin = new double[this.nbMachines];
+        this.xMax = new double[this.nbMachines];
+        this.yMin = new double[this.nbMachines];
+        this.yMax = new double[this.nbMachines];
+        this.xText = new double[this.nbMachines];
+        this.yText = new double[this.nbMachines];
+        this.px = new double[nbPoints];
+        this.py = new double[nbPoints];
+        this.radius = new double[nbPoints];
+        this.colliding = new boolean[nbPoints];
+        this.sx0 = new double[nbSprings];
+        this.sy0 = new double[nbSprings];
+        this.sx1 = new double[nbSprings];
+        this.sy1 = new double[nbSprings];
+
+        int k = 0;
+        int l = 0;
+        for (int i = 0; i < this.nbMachines; i++) {
+            Machine m = world.getMachine(i);
+            this.firstPoint[i] = k;
+            this.firstSpring[i] = l;
+            this.score[i] = m.getScore();
+
+            double x0 = Double.POSITIVE_INFINITY;
+            double x1 = Double.NEGATIVE_INFINITY;
+            double y0 = Double.POSITIVE_INFINITY;
+            double y1 = Double.NEGATIVE_INFINITY;
+            double xCenterMin = Double.POSITIVE_INFINITY;
+            double xCenterMax = Double.NEGATIVE_INFINITY;
+            double yCenterMax = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < m.getNbPoints(); j++) {
+                Point p = m.getPoint(j);
+                double x = p.getX();
+                double y = p.getY();
+                double r = p.getRadius();
+                this.px[k] = x;
+                this.py[k] = y;
+                this.radius[k] = r;
+                this.colliding[k] = p.isColliding();
+                k++;
+                x0 = Math.min(x0, x - r);
+                x1 = Math.max(x1, x + r);
+                y0 = Math.min(y0, y - r);
+                y1 = Math.max(y1, y + r);
+                xCenterMin = Math.min(xCenterMin, x);
+                xCenterMax = Math.max(xCenterMax, x);
+                yCenterMax = Math.max(yCenterMax, y);
+            }
+            this.xMin[i] = x0;
+            this.xMax[i] = x1;
+            this.yMin[i] = y0;
+            this.yMax[i] = y1;
+            this.xText[i] = (xCenterMin + xCenterMax) / 2;
+            this.yText[i] = yCenterMax;
+
+            for (int j = 0; j < m.getNbSprings(); j++) {
+                Spring s = m.getSpring(j);
+                if (s.hasTwoEnds()) {
+                    this.sx0[l] = s.getStart().getX();
+                    this.sy0[l] = s.getStart().getY();
+                    this.sx1[l] = s.getEnd().getX();
+                    this.sy1[l] = s.getEnd().getY();
+                    l++;
+                }
+            }
+        }
+        this.firstPoint[this.nbMachines] = k;
+        this.firstSpring[this.nbMachines] = l;
+
+        this.nbBlocks = world.getNbBlocks();
+        this.bx = new double[this.nbBlocks];
+        this.by = new double[this.nbBlocks];
+        this.bWidth = new double[this.nbBlocks];
+        this.bHeight = new double[this.nbBlocks];
+        this.bAngle = new double[this.nbBlocks];
+        double x0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY;
+        double y0 = Double.POSITIVE_INFINITY;
+        double y1 = Double.NEGATIVE_INFINITY;
+        for (int j = 0; j < this.nbBlocks; j++) {
+            Block b = world.getBlock(j);
+            this.bx[j] = b.getX();
+            this.by[j] = b.getY();
+            this.bWidth[j] = b.getWidth();
+            this.bHeight[j] = b.getHeight();
+            this.bAngle[j] = b.getAngle();
+            x0 = Math.min(x0, b.getXMin());
+            x1 = Math.max(x1, b.getXMax());
+            y0 = Math.min(y0, b.getYMin());
+            y1 = Math.max(y1, b.getYMax());
+        }
+        this.bxMin = x0;
+        this.bxMax = x1;
+        this.byMin = y0;
+        this.byMax = y1;
+    }
+
+    public double getWorldWidth() {
+        return this.worldWidth;
+    }
+
+    public double getWorldHeight() {
+        return this.worldHeight;
+    }
+
+    public int getNbMachines() {
+        return this.nbMachines;
+    }
+
+    public int getFirstPoint(int machine) {
+        return this.firstPoint[machine];
+    }
+
+    public int getFirstSpring(int machine) {
+        return this.firstSpring[machine];
+    }
+
+    public double getScore(int machine) {
+        return this.score[machine];
+    }
+
+    public double getXMin(int machine) {
+        return this.xMin[machine];
+    }
+
+    public double getXMax(int machine) {
+        return this.xMax[machine];
+    }
+
+    public double getYMin(int machine) {
+        return this.yMin[machine];
+    }
+
+    public double getYMax(int machine) {
+        return this.yMax[machine];
+    }
+
+    public double getXText(int machine) {
+        return this.xText[machine];
+    }
+
+    public double getYText(int machine) {
+        return this.yText[machine];
+    }
+
+    public double getPointX(int point) {
+        return this.px[point];
+    }
+
+    public double getPointY(int point) {
+        return this.py[point];
+    }
+
+    public double getPointRadius(int point) {
+        return this.radius[point];
+    }
+
+    public boolean isPointColliding(int point) {
+        return this.colliding[point];
+    }
+
+    public double getSpringX0(int spring) {
+        return this.sx0[spring];
+    }
+
+    public double getSpringY0(int spring) {
+        return this.sy0[spring];
+    }
+
+    public double getSpringX1(int spring) {
+        return this.sx1[spring];
+    }
+
+    public double getSpringY1(int spring) {
+        return this.sy1[spring];
+    }
+
+    public int getNbBlocks() {
+        return this.nbBlocks;
+    }
+
+    public double getBlockX(int block) {
+        return this.bx[block];
+    }
+
+    public double getBlockY(int block) {
+        return this.by[block];
+    }
+
+    public double getBlockWidth(int block) {
+        return this.bWidth[block];
+    }
+
+    public double getBlockHeight(int block) {
+        return this.bHeight[block];
+    }
+
+    public double getBlockAngle(int block) {
+        return this.bAngle[block];
+    }
+
+    public double getBlocksXMin() {
+        return this.bxMin;
+    }
+
+    public double getBlocksXMax() {
+        return this.bxMax;
+    }
+
+    public double getBlocksYMin() {
+        return this.byMin;
+    }
+
+    public double getBlocksYMax() {
+        return this.byMax;
+    }
+}
@@ -0,0 +1,246 @@
+/* This class drives the genetic algorithm from the simulation thread.
+
+ A generation lasts a fixed number of World.evolve steps, so that each generation
+ gets the same amount of simulated time whatever the load of the computer.
+ The selection (by default: keep the best half, breed, mutate; see Selection)
+ runs between two steps, on the same thread as the simulation.
+ */
+import java.io.IOException;
+import java.util.HashMap;
+
+public class GenerationScheduler {
+
+    private World world;
+
+    private int stepsPerGeneration;
+    private int step; // Number of steps already done in the current generation.
+    private int generation; // Number of generations already completed.
+
+    private Machine bestMachine; // Best machine at the end of the previous generation.
+
+    private boolean verbose;
+
+    private Selection selection;
+
+    private Evaluator evaluator; // Optional; evolves whole generations in worker processes.
+    private FitnessCache cache; // Optional; machines already evaluated are not evolved again.
+    private World scratch; // Evolves the machines missing from the cache; kept between generations.
+
+    public GenerationScheduler(World w, int stepsPerGeneration) {
+        this.world = w;
+        this.setStepsPerGeneration(stepsPerGeneration);
+        this.step = 0;
+        this.generation = 0;
+        this.bestMachine = null;
+        this.verbose = false;
+        this.selection = new TruncationSelection();
+        this.evaluator = null;
+        this.cache = null;
+    }
+
+    /**
+     * Evolve the world by one step, and run the selection when this step ends
+     * the current generation.
+     *
+     * @param dt
+     * @return true when a generation has just ended
+     */
+    public boolean step(double dt) {
+        if (this.evaluator != null || this.cache != null) {
+            /* The rest of the generation is evolved at once. */
+            try {
+                this.evolveGeneration(dt);
+                this.endGeneration();
+                return true;
+            } catch (IOException e) {
+                /* The world has not been modified, so the generation can be evolved again. */
+                System.out.println("Evaluation farm failed, evolving locally: " + e.getMessage());
+                this.evaluator.shutdown();
+                this.evaluator = null;
+                return this.step(dt);
+            }
+        }
+        this.world.evolve(dt);
+        this.step++;
+        if (this.step >= this.stepsPerGeneration) {
+            this.endGeneration();
+            return true;
+        }
+        return false;
+    }
+
+    /* Evolve all the machines until the end of the current generation,
+     on the workers when there are some, and without evolving again
+     the machines whose result is in the cache.
+     The machines of the world are replaced only once every result is known,
+     so that the world is left untouched when this throws. */
+    private void evolveGeneration(double dt) throws IOException {
+        int nbSteps = this.stepsPerGeneration - this.step;
+
+        if (this.cache == null || this.world.isArenaMode()) {
+            if (this.evaluator != null) {
+                this.evaluator.evaluate(this.world, nbSteps, dt);
+            } else {
+                for (int k = 0; k < nbSteps; k++) {
+                    this.world.evolve(dt);
+                }
+            }
+            return;
+        }
+
+        /* The machines that are not in the cache are evolved in a separate world;
+         identical machines are evolved only once. */
+        int nbMachines = this.world.getNbMachines();
+        Genome[] initial = new Genome[nbMachines];
+        Genome[] hits = new Genome[nbMachines]; // Result found in the cache, or null.
+        int[] rank = new int[nbMachines]; // Rank in the separate world, -1 for a cached machine.
+        HashMap<Genome, Integer> ranks = new HashMap<>();
+        if (this.scratch == null) {
+            this.scratch = this.world.createEmptyCopy();
+        } else {
+            this.world.updateCopy(this.scratch);
+        }
+        World misses = this.scratch;
+        double gx = this.world.isGravityActive() ? this.world.getGx() : 0;
+        double gy = this.world.isGravityActive() ? this.world.getGy() : 0;
+
+        for (int i = 0; i < nbMachines; i++) {
+            initial[i] = this.world.getMachine(i).getGenome();
+            hits[i] = this.cache.get(initial[i], nbSteps, dt);
+            if (hits[i] != null) {
+                rank[i] = -1;
+            } else {
+                Integer r = ranks.get(initial[i]);
+                if (r == null) {
+                    r = misses.getNbMachines();
+                    ranks.put(initial[i], r);
+                    Machine m = new Machine(initial[i]);
+                    m.setGravity(gx, gy);
+                    misses.addMachine(m);
+                }
+                rank[i] = r;
+            }
+        }
+
+        if (this.evaluator != null) {
+            this.evaluator.evaluate(misses, nbSteps, dt);
+        } else {
+            for (int k = 0; k < nbSteps; k++) {
+                misses.evolve(dt);
+            }
+        }
+
+        Genome[] results = new Genome[misses.getNbMachines()];
+        for (int i = 0; i < nbMachines; i++) {
+            if (rank[i] >= 0) {
+                if (results[rank[i]] == null) {
+                    results[rank[i]] = misses.getMachine(rank[i]).getGenome();
+                    this.cache.put(initial[i], nbSteps, dt, results[rank[i]]);
+                }
+                this.world.replaceMachine(i, new Machine(results[rank[i]]));
+            } else {
+                this.world.replaceMachine(i, new Machine(hits[i]));
+            }
+        }
+        this.world.setDate(this.world.getDate() + nbSteps * dt);
+    }
+
+    /**
+     * End the current generation now: make the next generation with the
+     * selection strategy.
+     */
+    public void endGeneration() {
+        this.bestMachine = this.selection.nextGeneration(this.world);
+        this.step = 0;
+        this.generation++;
+
+        if (this.verbose) {
+            if (this.bestMachine == null) {
+                System.out.println("generation " + this.generation + ", no machine left.");
+            } else {
+                System.out.println("generation " + this.generation
+                        + ", best: " + this.bestMachine.getScore()
+                        + " with " + this.bestMachine.getNbPoints() + " points.");
+            }
+        }
+    }
+
+    public void setStepsPerGeneration(int param) {
+        if (param > 0) {
+            this.stepsPerGeneration = param;
+        }
+    }
+
+    public int getStepsPerGeneration() {
+        return this.stepsPerGeneration;
+    }
+
+    public int getStep() {
+        return this.step;
+    }
+
+    /* Used when the state of the scheduler is read from a checkpoint. */
+    void restore(int generation, int step) {
+        this.generation = generation;
+        this.step = step;
+    }
+
+    public int getGeneration() {
+        return this.generation;
+    }
+
+    public Machine getBestMachine() {
+        return this.bestMachine;
+    }
+
+    public World getWorld() {
+        return this.world;
+    }
+
+    public void setSelection(Selection s) {
+        if (s != null) {
+            this.selection = s;
+        }
+    }
+
+    public Selection getSelection() {
+        return this.selection;
+    }
+
+    /**
+     * Evolve the machines in worker processes: each call to step() then runs
+     * the rest of the current generation. Null to evolve them locally again.
+     *
+     * @param e
+     */
+    public void setEvaluator(Evaluator e) {
+        this.evaluator = e;
+    }
+
+    public Evaluator getEvaluator() {
+        return this.evaluator;
+    }
+
+    /**
+     * Reuse the result of the machines already evaluated: each call to step()
+     * then runs the rest of the current generation. Null to stop using it.
+     *
+     * @param c
+     */
+    public void setFitnessCache(FitnessCache c) {
+        this.cache = c;
+    }
+
+    public FitnessCache getFitnessCache() {
+        return this.cache;
+    }
+
+    /**
+     * Print a line with the best score at the end of each generation.
+     *
+     * @param param
+     */
+    public void setVerbose(boolean param) {
+        this.verbose = param;
+    }
+}
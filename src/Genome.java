@@ -0,0 +1,195 @@
+/* Compact form of a machine, made only of primitive arrays.
+
+ Each point takes POINT_STRIDE consecutive values of the points array:
+ x, y, vx, vy, radius, mass.
+ Each spring takes two consecutive values of the ends array, the ranks of its
+ start and end points (-1 when missing), and SPRING_STRIDE consecutive values
+ of the springs array: l0, strength, damping, previous length.
+
+ A machine is cloned through its genome: the state of the parent is read into
+ the arrays, then the clone is built from them. The ends array is never modified
+ once built, so a machine and all its clones share it.
+ */
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class Genome {
+
+    public static final int POINT_STRIDE = 6;
+    public static final int SPRING_STRIDE = 4;
+
+    private int nbPoints;
+    private int nbSprings;
+    private double[] points;
+    private int[] ends;
+    private double[] springs;
+    private int hash; // 0 until computed.
+
+    /* The arrays now belong to the genome. */
+    public Genome(int nbPoints, double[] points, int nbSprings, int[] ends, double[] springs) {
+        this.nbPoints = nbPoints;
+        this.points = points;
+        this.nbSprings = nbSprings;
+        this.ends = ends;
+        this.springs = springs;
+    }
+
+    public int getNbPoints() {
+        return this.nbPoints;
+    }
+
+    public int getNbSprings() {
+        return this.nbSprings;
+    }
+
+    public double getX(int point) {
+        return this.points[point * POINT_STRIDE];
+    }
+
+    public double getY(int point) {
+        return this.points[point * POINT_STRIDE + 1];
+    }
+
+    public double getSpeedX(int point) {
+        return this.points[point * POINT_STRIDE + 2];
+    }
+
+    public double getSpeedY(int point) {
+        return this.points[point * POINT_STRIDE + 3];
+    }
+
+    public double getRadius(int point) {
+        return this.points[point * POINT_STRIDE + 4];
+    }
+
+    public double getMass(int point) {
+        return this.points[point * POINT_STRIDE + 5];
+    }
+
+    public int getStart(int spring) {
+        return this.ends[2 * spring];
+    }
+
+    public int getEnd(int spring) {
+        return this.ends[2 * spring + 1];
+    }
+
+    public double getL0(int spring) {
+        return this.springs[spring * SPRING_STRIDE];
+    }
+
+    public double getStrength(int spring) {
+        return this.springs[spring * SPRING_STRIDE + 1];
+    }
+
+    public double getDamping(int spring) {
+        return this.springs[spring * SPRING_STRIDE + 2];
+    }
+
+    public double getPrevLength(int spring) {
+        return this.springs[spring * SPRING_STRIDE + 3];
+    }
+
+    int[] getEnds() {
+        return this.ends;
+    }
+
+    /* Two genomes are equal when all their values have the same bits. */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Genome)) {
+            return false;
+        }
+        Genome other = (Genome) o;
+        if (this.nbPoints != other.nbPoints || this.nbSprings != other.nbSprings
+                || this.hashCode() != other.hashCode()) {
+            return false;
+        }
+        for (int k = 0; k < this.nbPoints * POINT_STRIDE; k++) {
+            if (Double.doubleToLongBits(this.points[k]) != Double.doubleToLongBits(other.points[k])) {
+                return false;
+            }
+        }
+        for (int k = 0; k < 2 * this.nbSprings; k++) {
+            if (this.ends[k] != other.ends[k]) {
+                return false;
+            }
+        }
+        for (int k = 0; k < this.nbSprings * SPRING_STRIDE; k++) {
+            if (Double.doubleToLongBits(this.springs[k]) != Double.doubleToLongBits(other.springs[k])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* The values of a genome are never modified, so the hash is computed once. */
+    @Override
+    public int hashCode() {
+        if (this.hash == 0) {
+            int h = 31 * this.nbPoints + this.nbSprings;
+            for (int k = 0; k < this.nbPoints * POINT_STRIDE; k++) {
+                h = 31 * h + Double.hashCode(this.points[k]);
+            }
+            for (int k = 0; k < 2 * this.nbSprings; k++) {
+                h = 31 * h + this.ends[k];
+            }
+            for (int k = 0; k < this.nbSprings * SPRING_STRIDE; k++) {
+                h = 31 * h + Double.hashCode(this.springs[k]);
+            }
+            this.hash = h;
+        }
+        return this.hash;
+    }
+
+    /**
+     * Write the genome to a stream, in the same order as in a checkpoint.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(this.nbPoints);
+        for (int k = 0; k < this.nbPoints * POINT_STRIDE; k++) {
+            out.writeDouble(this.points[k]);
+        }
+        out.writeInt(this.nbSprings);
+        for (int j = 0; j < this.nbSprings; j++) {
+            out.writeInt(this.ends[2 * j]);
+            out.writeInt(this.ends[2 * j + 1]);
+            for (int k = 0; k < SPRING_STRIDE; k++) {
+                out.writeDouble(this.springs[j * SPRING_STRIDE + k]);
+            }
+        }
+    }
+
+    /**
+     * Read a genome written by write().
+     *
+     * @param in
+     * @return the genome
+     * @throws IOException
+     */
+    public static Genome read(DataInput in) throws IOException {
+        int nbPoints = in.readInt();
+        double[] points = new double[nbPoints * POINT_STRIDE];
+        for (int k = 0; k < points.length; k++) {
+            points[k] = in.readDouble();
+        }
+        int nbSprings = in.readInt();
+        int[] ends = new int[2 * nbSprings];
+        double[] springs = new double[nbSprings * SPRING_STRIDE];
+        for (int j = 0; j < nbSprings; j++) {
+            ends[2 * j] = in.readInt();
+            ends[2 * j + 1] = in.readInt();
+            for (int k = 0; k < SPRING_STRIDE; k++) {
+                springs[j * SPRING_STRIDE + k] = in.readDouble();
+            }
+        }
+        return new Genome(nbPoints, points, nbSprings, ends, springs);
+    }
+}
@@ -2,6 +2,10 @@ import java.awt.Color;
 import java.awt.event.ActionListener;
 import java.awt.event.ActionEvent;
 import java.awt.Graphics;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import javax.swing.JPanel;
 import javax.swing.Timer;
 
@@ -16,15 +20,22 @@ public class GraphicPanel extends JPanel {
     private int nbMachinesPerCol = 40; // When not superposed, how many columns we want to see
 
     private World world;
+    private GenerationScheduler scheduler; // Optional; runs the selection between two steps.
+
+    /* The simulation runs on its own thread; this panel only draws the frames it publishes. */
+    private SimulationLoop simulation;
+    private FrameSnapshot lastPaintedFrame;
+    private static final int MAX_FPS = 60;
     private Timer timer;
     private boolean isRunning;
 
-    private int date;
-
     private Window window;
 
     private double defaultPeriod; // In seconds; period of the sim time.
 
+    private String checkpointPath; // Where the run is saved; null when saving is disabled.
+    private ExecutorService checkpointWriter; // Writes the checkpoints one at a time, away from the simulation.
+
     /* Either the machines are superposed (each one is displayed in the same referential),
      or they all have their own referential. */
     private boolean superposed = false;
@@ -39,23 +50,35 @@ public class GraphicPanel extends JPanel {
         this.y0 = 548;
         this.zoom = 5.438;
         this.defaultPeriod = 0.05;
+        /* Repaint at most MAX_FPS times per second, and only when a new frame is available. */
         ActionListener listener = new ActionListener() {
             public void actionPerformed(ActionEvent ev) {
-                date++;
-                // System.out.println("Timer " + date);
-                world.evolve(defaultPeriod);
-                repaint();
+                if (simulation != null && simulation.getLatestFrame() != lastPaintedFrame) {
+                    repaint();
+                }
             }
         };
-        int period = 10;
+        int period = 1000 / MAX_FPS;
         this.timer = new Timer(period, listener);
         this.isRunning = false;
-        this.date = 0;
     }
 
     public GraphicPanel(World w) {
         this();
+        this.setSimulation(w, null);
+    }
+
+    public GraphicPanel(GenerationScheduler s) {
+        this();
+        this.setSimulation(s.getWorld(), s);
+    }
+
+    private void setSimulation(World w, GenerationScheduler s) {
         this.world = w;
+        this.scheduler = s;
+        this.simulation = new SimulationLoop(w, s, this.defaultPeriod, MAX_FPS);
+        this.simulation.start();
+        this.timer.start();
     }
 
     public void eraseAll(Graphics g) {
@@ -72,15 +95,17 @@ public class GraphicPanel extends JPanel {
         this.eraseAll(g);
 
         double panelHeight = this.getSize().getHeight();
-
-        /* Offset used when the machines are not superposed. */
-        double dx, dy;
-        double zoomFact;
-
-        this.world.paint(g, panelHeight,
-                this.x0, this.y0, this.zoom,
-                this.superposed,
-                this.nbMachinesPerCol);
+        double panelWidth = this.getSize().getWidth();
+
+        if (this.simulation != null) {
+            FrameSnapshot frame = this.simulation.getLatestFrame();
+            Renderer renderer = new SwingRenderer(g, (int) panelWidth, (int) panelHeight);
+            renderer.render(frame,
+                    this.x0, this.y0, this.zoom,
+                    this.superposed,
+                    this.nbMachinesPerCol);
+            this.lastPaintedFrame = frame;
+        }
 
         this.drawAxis(g, panelHeight);
     }
@@ -152,7 +177,7 @@ public class GraphicPanel extends JPanel {
         if (this.superposed) {
             this.x0 = width / 2;
             this.y0 = height / 2;
-            this.zoom = this.world.getWidth();
+            this.zoom = this.simulation.getLatestFrame().getWorldWidth();
         } else {
             this.x0 = 0;
             this.y0 = 0;
@@ -177,13 +202,37 @@ public class GraphicPanel extends JPanel {
         repaint();
     }
 
-    public void evolve(double dt) {
-        this.world.evolve(dt);
-        this.repaint();
+    /* All the changes to the world run on the simulation thread,
+     between two steps; the new frame is painted once it is published. */
+    public void evolve(final double dt) {
+        this.simulation.submit(new Runnable() {
+            public void run() {
+                world.evolve(dt);
+            }
+        });
     }
 
     public void evolve() {
-        this.evolve(this.defaultPeriod);
+        this.evolve(this.simulation.getDt());
+    }
+
+    /**
+     * Change the amount of simulated time per second of wall-clock time.
+     */
+    public void multiplySpeed(double fact) {
+        this.simulation.setSpeed(this.simulation.getSpeed() * fact);
+    }
+
+    /**
+     * Change the duration of one step; a smaller dt is more accurate, and needs
+     * more steps for the same speed.
+     */
+    public void multiplyDt(double fact) {
+        this.simulation.setDt(this.simulation.getDt() * fact);
+    }
+
+    public void changeMaxSubsteps(int delta) {
+        this.simulation.setMaxSubsteps(this.simulation.getMaxSubsteps() + delta);
     }
 
     public void switchSuperposition() {
@@ -192,13 +241,11 @@ public class GraphicPanel extends JPanel {
     }
 
     public void play() {
-        this.timer.start();
-        this.world.play();
+        this.simulation.play();
     }
 
     public void pause() {
-        this.timer.stop();
-        this.world.pause();
+        this.simulation.pause();
     }
 
     public void togglePlayPause() {
@@ -212,50 +259,132 @@ public class GraphicPanel extends JPanel {
     }
 
     public void toggleGravity() {
-        this.world.toggleGravity();
+        this.simulation.submit(new Runnable() {
+            public void run() {
+                world.toggleGravity();
+            }
+        });
     }
 
-    public void increaseSpringSize(double fact) {
-        this.world.increaseSpringSize(fact);
+    public void increaseSpringSize(final double fact) {
+        this.simulation.submit(new Runnable() {
+            public void run() {
+                world.increaseSpringSize(fact);
+            }
+        });
     }
 
     /**
      * Stop all machines immediately.
      */
     public void blockSpeeds() {
-        world.blockSpeeds();
+        this.simulation.submit(new Runnable() {
+            public void run() {
+                world.blockSpeeds();
+            }
+        });
     }
 
     public void mutate() {
-        world.mutate();
-        repaint();
+        this.simulation.submit(new Runnable() {
+            public void run() {
+                world.mutate();
+            }
+        });
     }
 
     public void breed() {
-        world.breed();
-        repaint();
+        this.simulation.submit(new Runnable() {
+            public void run() {
+                world.breed();
+            }
+        });
     }
 
     public void sortMachines() {
-        world.sortMachines();
-        repaint();
+        this.simulation.submit(new Runnable() {
+            public void run() {
+                world.sortMachines();
+            }
+        });
     }
 
     public void killHalf() {
-        world.killHalf();
-        repaint();
+        this.simulation.submit(new Runnable() {
+            public void run() {
+                world.killHalf();
+            }
+        });
     }
 
-    public void extendSprings(double dL) {
-        world.extendSprings(dL);
+    public void extendSprings(final double dL) {
+        this.simulation.submit(new Runnable() {
+            public void run() {
+                world.extendSprings(dL);
+            }
+        });
+    }
+
+    public void setCheckpointPath(String path) {
+        this.checkpointPath = path;
+    }
+
+    /**
+     * Save the whole run to the checkpoint file: the run is copied between two
+     * steps of the simulation, then written by another thread while the
+     * simulation goes on.
+     */
+    public void saveCheckpoint() {
+        if (this.checkpointPath == null || this.scheduler == null) {
+            System.out.println("No checkpoint file.");
+            return;
+        }
+        if (this.checkpointWriter == null) {
+            this.checkpointWriter = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "Checkpoint");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        final String path = this.checkpointPath;
+        this.simulation.submit(new Runnable() {
+            public void run() {
+                long start = System.nanoTime();
+                final Checkpoint checkpoint = new Checkpoint(scheduler);
+                final long copyTime = System.nanoTime() - start;
+                checkpointWriter.execute(new Runnable() {
+                    public void run() {
+                        long writeStart = System.nanoTime();
+                        try {
+                            checkpoint.write(path);
+                            System.out.println("Saved " + checkpoint.getNbMachines() + " machines to " + path
+                                    + " (copy: " + copyTime / 1000 + " us, write: "
+                                    + (System.nanoTime() - writeStart) / 1000000 + " ms)");
+                        } catch (IOException e) {
+                            System.out.println("Could not save " + path + ": " + e.getMessage());
+                        }
+                    }
+                });
+            }
+        });
     }
 
     void doCompleteEvolutionStep() {
         System.out.println("do complete evol step");
-        world.sortMachines();
-        world.killHalf();
-        world.breed();
-        world.mutate();
-        repaint();
+        this.simulation.submit(new Runnable() {
+            public void run() {
+                if (scheduler != null) {
+                    scheduler.endGeneration();
+                } else {
+                    world.sortMachines();
+                    world.killHalf();
+                    world.breed();
+                    world.mutate();
+                }
+            }
+        });
     }
 }
@@ -0,0 +1,277 @@
+/* Linearized backward Euler, for stiff springs and large steps.
+
+ The new speeds v' are those that satisfy, at first order around the current positions,
+ M v' = M v + dt (F(x + dt v') + G)
+ where the damping of a spring is taken as the change of its length during the step.
+ This gives the linear system A v' = M v + dt (Fe(x) + G), with
+ A = M + dt^2 sum over the springs of (k/l0 ((l - l0)+ I + d d^T / l) + c/(l0 l) d d^T),
+ d being the vector between the two ends of the spring, k its strength and c its damping.
+ A is symmetric positive definite (the negative part of (l - l0) is dropped), so the system
+ is solved with a conjugate gradient, preconditioned by the diagonal of A.
+ The matrix is never built: its product with a vector is computed spring by spring.
+
+ The machine is attached to a store of its own when it is not already attached to one.
+ */
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ImplicitEulerIntegrator implements Integrator {
+
+    private int maxIterations;
+    private double tolerance; // Relative to the norm of the right-hand side.
+
+    /* Each thread uses its own arrays, so that the integrator can be shared by all the machines. */
+    private static final ThreadLocal<Workspace> WORKSPACE = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return new Workspace();
+        }
+    };
+
+    public ImplicitEulerIntegrator() {
+        this(50, 1e-6);
+    }
+
+    public ImplicitEulerIntegrator(int maxIterations, double tolerance) {
+        this.maxIterations = maxIterations;
+        this.tolerance = tolerance;
+    }
+
+    public int getMaxIterations() {
+        return this.maxIterations;
+    }
+
+    public double getTolerance() {
+        return this.tolerance;
+    }
+
+    @Override
+    public void computeSpeeds(Machine m, double dt) {
+        if (m.getStore() == null) {
+            m.attach(new PointStore(m.getNbPoints()));
+        }
+        PointStore s = m.getStore();
+        SpringKernel k = m.getSpringKernel();
+        int first = m.getFirstIndex();
+        int n = m.getNbPoints();
+        Workspace w = WORKSPACE.get();
+        w.ensureCapacity(n, k.nbSprings);
+
+        /* Explicit part of the forces: gravity and elasticity at the current positions. */
+        for (int i = 0; i < n; i++) {
+            w.fx[i] = m.getGx();
+            w.fy[i] = m.getGy();
+        }
+        double dt2 = dt * dt;
+        for (int j = 0; j < k.nbSprings; j++) {
+            int a = k.start[j] - first;
+            int b = k.end[j] - first;
+            double dx = s.x[b + first] - s.x[a + first];
+            double dy = s.y[b + first] - s.y[a + first];
+            double l = Math.sqrt(dx * dx + dy * dy);
+            k.length[j] = l;
+
+            if (l > 0.001) {
+                double l0 = k.l0[j];
+                double dl = l - l0;
+                double f = -k.strength[j] * dl / l0;
+                w.fx[b] += f * dx;
+                w.fy[b] += f * dy;
+                w.fx[a] -= f * dx;
+                w.fy[a] -= f * dy;
+
+                double cIdentity = dt2 * k.strength[j] / l0 * Math.max(dl, 0);
+                double cDirection = dt2 * (k.strength[j] + k.damping[j]) / (l0 * l);
+                w.jxx[j] = cIdentity + cDirection * dx * dx;
+                w.jxy[j] = cDirection * dx * dy;
+                w.jyy[j] = cIdentity + cDirection * dy * dy;
+            } else {
+                // Special case where the spring is reduced to a point. The reaction is random.
+                Random r = ThreadLocalRandom.current();
+                double dfx = 10 * (r.nextDouble() - 0.5);
+                double dfy = 10 * (r.nextDouble() - 0.5);
+                w.fx[b] += dfx;
+                w.fy[b] += dfy;
+                w.fx[a] -= dfx;
+                w.fy[a] -= dfy;
+                w.jxx[j] = 0;
+                w.jxy[j] = 0;
+                w.jyy[j] = 0;
+            }
+        }
+
+        /* Right-hand side, first guess (the current speeds) and diagonal of A.
+         The points without mass keep their speed. */
+        for (int i = 0; i < n; i++) {
+            double mass = s.mass[i + first];
+            w.vx[i] = s.vx[i + first];
+            w.vy[i] = s.vy[i + first];
+            w.mass[i] = mass;
+            w.bx[i] = mass * w.vx[i] + dt * w.fx[i];
+            w.by[i] = mass * w.vy[i] + dt * w.fy[i];
+            w.dx[i] = mass;
+            w.dy[i] = mass;
+        }
+        for (int j = 0; j < k.nbSprings; j++) {
+            int a = k.start[j] - first;
+            int b = k.end[j] - first;
+            w.dx[a] += w.jxx[j];
+            w.dy[a] += w.jyy[j];
+            w.dx[b] += w.jxx[j];
+            w.dy[b] += w.jyy[j];
+        }
+        for (int i = 0; i < n; i++) {
+            if (!(w.mass[i] > 0)) {
+                w.dx[i] = 1;
+                w.dy[i] = 1;
+            }
+        }
+
+        this.solve(w, k, first, n);
+
+        for (int i = 0; i < n; i++) {
+            if (w.mass[i] > 0) {
+                s.vx[i + first] = w.vx[i];
+                s.vy[i + first] = w.vy[i];
+            }
+        }
+        k.updateLengths();
+    }
+
+    @Override
+    public void movePoints(Machine m, double dt) {
+        m.move(dt);
+    }
+
+    @Override
+    public void endStep(Machine m, double dt) {
+        // Nothing to do once the points have moved.
+    }
+
+    @Override
+    public Integrator forWorld(World w) {
+        return this;
+    }
+
+    /* Preconditioned conjugate gradient on A v = b, starting from the current value of v. */
+    private void solve(Workspace w, SpringKernel k, int first, int n) {
+
+        this.multiply(w, k, first, n, w.vx, w.vy, w.ax, w.ay);
+        double bNorm2 = 0;
+        double rz = 0;
+        for (int i = 0; i < n; i++) {
+            if (w.mass[i] > 0) {
+                w.rx[i] = w.bx[i] - w.ax[i];
+                w.ry[i] = w.by[i] - w.ay[i];
+                bNorm2 += w.bx[i] * w.bx[i] + w.by[i] * w.by[i];
+            } else {
+                w.rx[i] = 0;
+                w.ry[i] = 0;
+            }
+            w.px[i] = w.rx[i] / w.dx[i];
+            w.py[i] = w.ry[i] / w.dy[i];
+            rz += w.rx[i] * w.px[i] + w.ry[i] * w.py[i];
+        }
+        double threshold = this.tolerance * this.tolerance * bNorm2;
+
+        for (int iteration = 0; iteration < this.maxIterations; iteration++) {
+            double rNorm2 = 0;
+            for (int i = 0; i < n; i++) {
+                rNorm2 += w.rx[i] * w.rx[i] + w.ry[i] * w.ry[i];
+            }
+            if (rNorm2 <= threshold || !(rz > 0)) {
+                return;
+            }
+
+            this.multiply(w, k, first, n, w.px, w.py, w.ax, w.ay);
+            double pAp = 0;
+            for (int i = 0; i < n; i++) {
+                pAp += w.px[i] * w.ax[i] + w.py[i] * w.ay[i];
+            }
+            if (!(pAp > 0)) {
+                return;
+            }
+            double alpha = rz / pAp;
+            double newRz = 0;
+            for (int i = 0; i < n; i++) {
+                w.vx[i] += alpha * w.px[i];
+                w.vy[i] += alpha * w.py[i];
+                w.rx[i] -= alpha * w.ax[i];
+                w.ry[i] -= alpha * w.ay[i];
+                newRz += w.rx[i] * w.rx[i] / w.dx[i] + w.ry[i] * w.ry[i] / w.dy[i];
+            }
+            double beta = newRz / rz;
+            rz = newRz;
+            for (int i = 0; i < n; i++) {
+                w.px[i] = w.rx[i] / w.dx[i] + beta * w.px[i];
+                w.py[i] = w.ry[i] / w.dy[i] + beta * w.py[i];
+            }
+        }
+    }
+
+    /* (ax, ay) = A (px, py); the rows of the points without mass are left at zero. */
+    private void multiply(Workspace w, SpringKernel k, int first, int n,
+            double[] px, double[] py, double[] ax, double[] ay) {
+        for (int i = 0; i < n; i++) {
+            ax[i] = w.mass[i] * px[i];
+            ay[i] = w.mass[i] * py[i];
+        }
+        for (int j = 0; j < k.nbSprings; j++) {
+            int a = k.start[j] - first;
+            int b = k.end[j] - first;
+            double relX = px[b] - px[a];
+            double relY = py[b] - py[a];
+            double tx = w.jxx[j] * relX + w.jxy[j] * relY;
+            double ty = w.jxy[j] * relX + w.jyy[j] * relY;
+            ax[b] += tx;
+            ay[b] += ty;
+            ax[a] -= tx;
+            ay[a] -= ty;
+        }
+        for (int i = 0; i < n; i++) {
+            if (!(w.mass[i] > 0)) {
+                ax[i] = 0;
+                ay[i] = 0;
+            }
+        }
+    }
+
+    /* Arrays of the solver, indexed by the rank of the point in the machine
+     or by the rank of the spring in the kernel. They only grow. */
+    private static class Workspace {
+
+        private double[] mass, fx, fy, vx, vy, bx, by, rx, ry, px, py, ax, ay, dx, dy;
+        private double[] jxx, jxy, jyy;
+
+        private Workspace() {
+            this.ensureCapacity(16, 32);
+        }
+
+        private void ensureCapacity(int nbPoints, int nbSprings) {
+            if (this.mass == null || this.mass.length < nbPoints) {
+                int size = Math.max(nbPoints, 16);
+                this.mass = new double[size];
+                this.fx = new double[size];
+                this.fy = new double[size];
+                this.vx = new double[size];
+                this.vy = new double[size];
+                this.bx = new double[size];
+                this.by = new double[size];
+                this.rx = new double[size];
+                this.ry = new double[size];
+                this.px = new double[size];
+                this.py = new double[size];
+                this.ax = new double[size];
+                this.ay = new double[size];
+                this.dx = new double[size];
+                this.dy = new double[size];
+            }
+            if (this.jxx == null || this.jxx.length < nbSprings) {
+                int size = Math.max(nbSprings, 32);
+                this.jxx = new double[size];
+                this.jxy = new double[size];
+                this.jyy = new double[size];
+            }
+        }
+    }
+}
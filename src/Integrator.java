@@ -0,0 +1,21 @@
+/* An integrator advances the points of a machine in time.
+
+ A step is split in two, so that the world can handle the collisions in between:
+ computeSpeeds() gives the points the speed they will keep during the step,
+ then movePoints() moves them along that speed, and ends the step.
+ With continuous collisions, the world moves each point itself, from the date of
+ its last collision, instead of calling movePoints(); it then calls endStep().
+ */
+public interface Integrator {
+
+    public void computeSpeeds(Machine m, double dt);
+
+    public void movePoints(Machine m, double dt);
+
+    /* The work done by movePoints() once the points have moved, if any. */
+    public void endStep(Machine m, double dt);
+
+    /* The same integrator, for the machines of another world (e.g. a copy of the
+     world of this one); an integrator that does not use its world returns itself. */
+    public Integrator forWorld(World w);
+}
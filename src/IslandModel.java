@@ -0,0 +1,176 @@
+/* Island model of the genetic algorithm.
+
+ The population is split into independent worlds (the islands), each one with its own
+ generation scheduler. During an epoch, each island runs migrationInterval generations
+ on its own thread. The islands share no machine and no world; each thread draws its
+ mutations and selections from its own ThreadLocalRandom, so no lock is needed.
+ Between two epochs, each island sends a copy of its nbMigrants best machines to the
+ next island (in a ring), where they replace the worst machines.
+ */
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+public class IslandModel {
+
+    private GenerationScheduler[] islands;
+    private int migrationInterval; // Number of generations between two migrations.
+    private int nbMigrants;
+    private int generation;
+
+    private ExecutorService executor;
+    private ArrayList<IslandTask> tasks;
+
+    public IslandModel(int nbIslands, int nbMachinesPerIsland, int stepsPerGeneration,
+            int migrationInterval, int nbMigrants) {
+        this.islands = new GenerationScheduler[nbIslands];
+        for (int i = 0; i < nbIslands; i++) {
+            this.islands[i] = new GenerationScheduler(new World(nbMachinesPerIsland), stepsPerGeneration);
+        }
+        this.migrationInterval = Math.max(1, migrationInterval);
+        this.nbMigrants = nbMigrants;
+        this.generation = 0;
+
+        this.executor = Executors.newFixedThreadPool(nbIslands, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Island");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        this.tasks = new ArrayList<>();
+        for (int i = 0; i < nbIslands; i++) {
+            this.tasks.add(new IslandTask(this.islands[i]));
+        }
+    }
+
+    /**
+     * Run migrationInterval generations on every island in parallel, then
+     * migrate the best machines.
+     *
+     * @param dt
+     */
+    public void runEpoch(double dt) {
+        for (IslandTask task : this.tasks) {
+            task.dt = dt;
+            task.nbGenerations = this.migrationInterval;
+        }
+        try {
+            for (Future<Void> f : this.executor.invokeAll(this.tasks)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        this.generation += this.migrationInterval;
+        this.migrate();
+    }
+
+    /**
+     * Each island receives copies of the best machines of the previous one;
+     * they replace its worst machines. Both are found by quickselect, without
+     * sorting the machines.
+     */
+    public void migrate() {
+        int nbIslands = this.islands.length;
+        if (nbIslands < 2 || this.nbMigrants <= 0) {
+            return;
+        }
+
+        /* All the migrants are copied before any island is modified. */
+        Machine[][] migrants = new Machine[nbIslands][];
+        for (int i = 0; i < nbIslands; i++) {
+            World world = this.islands[i].getWorld();
+            world.computeScores();
+            int[] best = world.selectBest(this.nbMigrants);
+            migrants[i] = new Machine[best.length];
+            for (int k = 0; k < best.length; k++) {
+                migrants[i][k] = world.getMachine(best[k]).clone();
+            }
+        }
+
+        for (int i = 0; i < nbIslands; i++) {
+            World destination = this.islands[(i + 1) % nbIslands].getWorld();
+            Machine[] arriving = migrants[i];
+            destination.computeScores();
+            int[] worst = destination.selectWorst(arriving.length);
+            for (int k = 0; k < worst.length; k++) {
+                destination.replaceMachine(worst[k], arriving[k]);
+            }
+        }
+    }
+
+    public int getNbIslands() {
+        return this.islands.length;
+    }
+
+    public GenerationScheduler getIsland(int i) {
+        return this.islands[i];
+    }
+
+    /* Number of generations completed by each island. */
+    public int getGeneration() {
+        return this.generation;
+    }
+
+    public int getMigrationInterval() {
+        return this.migrationInterval;
+    }
+
+    public int getNbMigrants() {
+        return this.nbMigrants;
+    }
+
+    /**
+     * The best machine at the end of the last generation, among all the
+     * islands.
+     */
+    public Machine getBestMachine() {
+        Machine best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (GenerationScheduler island : this.islands) {
+            Machine m = island.getBestMachine();
+            if (m != null && (best == null || m.getScore() > bestScore)) {
+                best = m;
+                bestScore = m.getScore();
+            }
+        }
+        return best;
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+        for (GenerationScheduler island : this.islands) {
+            island.getWorld().shutdown();
+        }
+    }
+
+    private static class IslandTask implements Callable<Void> {
+
+        private GenerationScheduler island;
+        private double dt;
+        private int nbGenerations;
+
+        private IslandTask(GenerationScheduler island) {
+            this.island = island;
+        }
+
+        @Override
+        public Void call() {
+            for (int g = 0; g < this.nbGenerations; g++) {
+                while (!this.island.step(this.dt)) {
+                    // The selection runs within the step that ends the generation.
+                }
+            }
+            return null;
+        }
+    }
+}
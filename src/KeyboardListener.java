@@ -55,6 +55,9 @@ public class KeyboardListener implements KeyListener {
             case 'p':
                 panel.togglePlayPause();
                 break;
+            case 'k':
+                panel.saveCheckpoint();
+                break;
             case 's':
                 panel.sortMachines();
                 break;
@@ -64,6 +67,24 @@ public class KeyboardListener implements KeyListener {
             case '/':
                 panel.increaseSpringSize(1 / 1.1);
                 break;
+            case '>':
+                panel.multiplySpeed(2);
+                break;
+            case '<':
+                panel.multiplySpeed(0.5);
+                break;
+            case ')':
+                panel.multiplyDt(2);
+                break;
+            case '(':
+                panel.multiplyDt(0.5);
+                break;
+            case ']':
+                panel.changeMaxSubsteps(+5);
+                break;
+            case '[':
+                panel.changeMaxSubsteps(-5);
+                break;
             default:
                 break;
         }
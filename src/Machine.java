@@ -11,38 +11,64 @@
 
 
  */
-import java.awt.Color;
-import java.awt.Graphics;
 import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Machine implements Comparable<Machine> {
 
-    private static int nbMachinesCreated = 0;
-
-    private int machineID;
-
     private static int NB_POINTS_MAX = 13;
 
     private ArrayList<Point> pointList;
     private ArrayList<Spring> springList;
 
+    /* Ranks of the two ends of each spring in pointList (-1 when missing), two by two;
+     null when they must be searched again. Never modified once built, since the
+     genomes of the offspring share it. */
+    private int[] springEnds;
+
     // Gravity
     private double gx, gy;
 
+    /* When the machine is attached to a store, its points occupy the indices
+     firstIndex to firstIndex + pointList.size() - 1 of that store. */
+    private PointStore store;
+    private int firstIndex;
+    private SpringKernel springKernel; // Compiled springs, used with the store.
+
+    private Integrator integrator;
+    private static final Integrator DEFAULT_INTEGRATOR = new SymplecticEulerIntegrator();
+
+    /* Used to find the collisions between the points of this machine. */
+    private SpatialHash spatialHash;
+    private int[] selfCollisionStamps;
+    private int[] selfCollisionCounts;
+    private static int NB_SELF_COLLISIONS_MAX = 16; // Per point and per timestep.
+    private PriorityQueue<Collision> selfCollisionQueue;
+    private CollisionPool selfCollisionPool;
+
     /* This constructor creates between 1 and 10 points;
      each two points have a probability of 0.3 of being linked together.
      */
     public Machine() {
-        this.machineID = nbMachinesCreated;
-        nbMachinesCreated++;
+        this(1);
+    }
 
+    /**
+     * Create a machine of the chosen type (see buildMachine).
+     *
+     * @param type
+     */
+    public Machine(int type) {
         this.pointList = new ArrayList<>();
         this.springList = new ArrayList<>();
 
-        this.buildMachine(1);
+        this.buildMachine(type);
 
         this.gx = 0;
         this.gy = 0;
+        this.integrator = DEFAULT_INTEGRATOR;
     }
 
     /**
@@ -52,45 +78,98 @@ public class Machine implements Comparable<Machine> {
      * @param model
      */
     public Machine(Machine model) {
-        this();
-
-        this.pointList = new ArrayList<>();
-        this.springList = new ArrayList<>();
-
-        for (Point p : model.pointList) {
-            this.pointList.add(p.clone());
-        }
-        for (Spring s : model.springList) {
-            Spring newSpring = new Spring();
-            this.springList.add(newSpring);
-        }
-
-        // Link each one of the new points to the appropriate springs.
-        int pointIndex = 0;
-        for (Point p : model.pointList) {
-            // Identify all springs linked to the current point
-            int springIndex = 0;
-            for (Spring s : model.springList) {
-                if (s.usesPoint(p)) {
-                    this.springList.get(springIndex).addPoint(this.pointList.get(pointIndex));
-                }
-                springIndex++;
-            }
-            pointIndex++;
-        }
-
-        for (int i = 0; i < springList.size(); i++) {
-            this.springList.get(i).setL0(model.springList.get(i).getL0());
-        }
-
+        this(model.getGenome());
         this.gx = model.gx;
         this.gy = model.gy;
+        this.integrator = model.integrator;
+    }
+
+    /**
+     * Create the machine described by the genome.
+     *
+     * @param g
+     */
+    public Machine(Genome g) {
+        this.pointList = new ArrayList<>(g.getNbPoints());
+        this.springList = new ArrayList<>(g.getNbSprings());
+        for (int i = 0; i < g.getNbPoints(); i++) {
+            Point p = new Point(g.getX(i), g.getY(i), g.getSpeedX(i), g.getSpeedY(i), g.getRadius(i));
+            p.setMass(g.getMass(i));
+            this.pointList.add(p);
+        }
+        for (int j = 0; j < g.getNbSprings(); j++) {
+            int start = g.getStart(j);
+            int end = g.getEnd(j);
+            Spring s = new Spring(start >= 0 ? this.pointList.get(start) : null,
+                    end >= 0 ? this.pointList.get(end) : null);
+            s.setL0(g.getL0(j));
+            s.setStrength(g.getStrength(j));
+            s.setDamping(g.getDamping(j));
+            s.setPrevLength(g.getPrevLength(j));
+            this.springList.add(s);
+        }
+        this.springEnds = g.getEnds();
+
+        this.gx = 0;
+        this.gy = 0;
+        this.integrator = DEFAULT_INTEGRATOR;
     }
 
     public Machine clone() {
         return new Machine(this);
     }
 
+    /**
+     * The compact form of this machine: the current state of its points and
+     * the parameters of its springs.
+     */
+    public Genome getGenome() {
+        if (this.springKernel != null) {
+            // The kernel holds the previous lengths.
+            this.springKernel.writeBack(this.springList);
+        }
+
+        int nbPoints = this.pointList.size();
+        double[] points = new double[nbPoints * Genome.POINT_STRIDE];
+        int k = 0;
+        for (int i = 0; i < nbPoints; i++) {
+            Point p = this.pointList.get(i);
+            points[k++] = p.getX();
+            points[k++] = p.getY();
+            points[k++] = p.getSpeedX();
+            points[k++] = p.getSpeedY();
+            points[k++] = p.getRadius();
+            points[k++] = p.getMass();
+        }
+
+        int nbSprings = this.springList.size();
+        double[] springs = new double[nbSprings * Genome.SPRING_STRIDE];
+        k = 0;
+        for (int j = 0; j < nbSprings; j++) {
+            Spring s = this.springList.get(j);
+            springs[k++] = s.getL0();
+            springs[k++] = s.getStrength();
+            springs[k++] = s.getDamping();
+            springs[k++] = s.getPrevLength();
+        }
+
+        return new Genome(nbPoints, points, nbSprings, this.getSpringEnds(), springs);
+    }
+
+    /* The ranks of the ends are searched only when the structure of the machine has changed. */
+    private int[] getSpringEnds() {
+        if (this.springEnds == null) {
+            int[] ends = new int[2 * this.springList.size()];
+            for (int j = 0; j < this.springList.size(); j++) {
+                Spring s = this.springList.get(j);
+                ends[2 * j] = this.pointList.indexOf(s.getStart());
+                ends[2 * j + 1] = this.pointList.indexOf(s.getEnd());
+            }
+            this.springEnds = ends;
+        }
+        return this.springEnds;
+    }
+
     /**
      * Build a machine of the chosen type.
      *
@@ -238,37 +317,43 @@ public class Machine implements Comparable<Machine> {
         return res;
     }
 
-    public void display(Graphics g,
-            double x0, double y0, double zoom,
-            int panelHeight) {
-
-        for (int i = 0; i < this.pointList.size(); i++) {
-            this.pointList.get(i).display(g,
-                    x0, y0, zoom,
-                    panelHeight);
-        }
-        for (int i = 0; i < this.springList.size(); i++) {
-            this.springList.get(i).display(g,
-                    x0, y0, zoom,
-                    panelHeight);
-        }
-
-        // Display score with four digits after decimal point
-        int xDisplay = (int) (zoom * (this.getXMin() + this.getXMax()) / 2 + x0);
-        int yDisplay = (int) (panelHeight - (zoom * this.getYMax() + y0) - 2 * zoom);
-        g.setColor(Color.black);
-        String text = "" + this.getScore();
-        text = text.substring(0, Math.min(6, text.length()));
-        g.drawString(text, xDisplay, yDisplay);
-    }
-
     private void razForces() {
         for (int i = 0; i < this.pointList.size(); i++) {
             this.pointList.get(i).razForces();
         }
     }
 
-    private void computeForces(double dt) {
+    /* The primitives below are used by the integrators.
+     Each one works either on the points or on the store the machine is attached to. */
+
+    /**
+     * Compute the forces applied on each point at the current positions:
+     * springs and gravity.
+     *
+     * @param dt
+     * @param updateLengths when true, the current length of each spring becomes
+     * its previous length, used by the damping at the next step
+     */
+    void computeForces(double dt, boolean updateLengths) {
+        if (this.store != null) {
+            PointStore s = this.store;
+            int first = this.firstIndex;
+            int last = first + this.pointList.size();
+            for (int i = first; i < last; i++) {
+                s.fx[i] = 0;
+                s.fy[i] = 0;
+            }
+            SpringKernel kernel = this.getSpringKernel();
+            kernel.applyForces(s, dt);
+            for (int i = first; i < last; i++) {
+                s.fx[i] += this.gx;
+                s.fy[i] += this.gy;
+            }
+            if (updateLengths) {
+                kernel.updateLengths();
+            }
+            return;
+        }
         this.razForces();
         for (int i = 0; i < this.springList.size(); i++) {
             this.springList.get(i).applyForce(dt);
@@ -277,15 +362,55 @@ public class Machine implements Comparable<Machine> {
         for (int i = 0; i < this.pointList.size(); i++) {
             this.pointList.get(i).receiveForce(this.gx, this.gy);
         }
+        if (updateLengths) {
+            this.updateSprings();
+        }
     }
 
-    private void updateSpeeds(double dt) {
+    /**
+     * Update the speed of each point with the forces computed last.
+     *
+     * @param dt
+     */
+    void updateSpeeds(double dt) {
+        if (this.store != null) {
+            PointStore s = this.store;
+            int first = this.firstIndex;
+            int last = first + this.pointList.size();
+            for (int i = first; i < last; i++) {
+                if (s.mass[i] > 0) {
+                    s.vx[i] += s.fx[i] * dt / s.mass[i];
+                    s.vy[i] += s.fy[i] * dt / s.mass[i];
+                }
+            }
+            return;
+        }
         for (int i = 0; i < this.pointList.size(); i++) {
             this.pointList.get(i).updateSpeed(dt);
         }
     }
 
-    private void move(double dt) {
+    /**
+     * Move each point according to its speed. The trails are not updated when
+     * the machine is attached to a store.
+     *
+     * @param dt
+     */
+    void move(double dt) {
+        if (this.store != null) {
+            PointStore s = this.store;
+            int first = this.firstIndex;
+            int last = first + this.pointList.size();
+            for (int i = first; i < last; i++) {
+                s.x[i] += dt * s.vx[i];
+                s.y[i] += dt * s.vy[i];
+                if (Double.isNaN(s.x[i]) || Double.isNaN(s.y[i])) {
+                    s.x[i] = 0;
+                    s.y[i] = 1000000000;
+                }
+            }
+            return;
+        }
         for (int i = 0; i < this.pointList.size(); i++) {
             this.pointList.get(i).move(dt);
         }
@@ -300,22 +425,116 @@ public class Machine implements Comparable<Machine> {
         }
     }
 
-
     /* The evolution process is composed of three steps.
      1) All forces applied on the points are computed.
      2) All point speeds are updated.
      3) All points are moved.
+     How these steps are done depends on the integrator of the machine.
      */
     public void evolve(double dt) {
-        this.computeForces(dt);
-        this.updateSpeeds(dt);
-        this.updateSprings();
-        this.move(dt);
+        this.computeSpeeds(dt);
+        this.movePoints(dt);
+    }
+
+    /**
+     * First two steps of the evolution: compute the forces and update the
+     * speeds, without moving the points yet.
+     *
+     * @param dt
+     */
+    public void computeSpeeds(double dt) {
+        this.integrator.computeSpeeds(this, dt);
+    }
+
+    /**
+     * Last step of the evolution: move all the points according to their
+     * speed.
+     *
+     * @param dt
+     */
+    public void movePoints(double dt) {
+        this.integrator.movePoints(this, dt);
+    }
+
+    /**
+     * End the step when the points were moved one by one instead of with
+     * movePoints(), e.g. between continuous collisions.
+     *
+     * @param dt
+     */
+    public void endStep(double dt) {
+        this.integrator.endStep(this, dt);
+    }
+
+    public Integrator getIntegrator() {
+        return this.integrator;
+    }
+
+    public void setIntegrator(Integrator i) {
+        this.integrator = i;
+    }
+
+    PointStore getStore() {
+        return this.store;
+    }
+
+    int getFirstIndex() {
+        return this.firstIndex;
+    }
+
+    /* Only valid while the machine is attached to a store. */
+    SpringKernel getSpringKernel() {
+        if (this.springKernel == null) {
+            this.springKernel = new SpringKernel(this.springList);
+        }
+        return this.springKernel;
+    }
+
+    /**
+     * Move the state of all the points of this machine into the given store,
+     * in consecutive indices.
+     *
+     * @param s
+     */
+    public void attach(PointStore s) {
+        this.detach();
+        this.firstIndex = s.size();
+        for (Point p : this.pointList) {
+            p.attach(s);
+        }
+        this.store = s;
+        this.springKernel = new SpringKernel(this.springList);
+    }
+
+    /**
+     * Copy the state of the points back from the store, and stop using it.
+     */
+    public void detach() {
+        if (this.store != null) {
+            this.releaseSpringKernel();
+            for (Point p : this.pointList) {
+                p.detach();
+            }
+            this.store = null;
+        }
+    }
+
+    public boolean isAttached() {
+        return this.store != null;
+    }
+
+    /* Must be called before the springs are modified: the springs get back their
+     state from the kernel, which is compiled again at the next step. */
+    private void releaseSpringKernel() {
+        if (this.springKernel != null) {
+            this.springKernel.writeBack(this.springList);
+            this.springKernel = null;
+        }
     }
 
     public void razCollisions() {
-        for (Point p : pointList) {
-            p.setColliding(false);
+        for (int i = 0; i < this.pointList.size(); i++) {
+            this.pointList.get(i).setColliding(false);
         }
     }
 
@@ -327,6 +546,22 @@ public class Machine implements Comparable<Machine> {
         return this.pointList.get(index);
     }
 
+    public int getNbSprings() {
+        return this.springList.size();
+    }
+
+    public Spring getSpring(int index) {
+        return this.springList.get(index);
+    }
+
+    public double getGx() {
+        return this.gx;
+    }
+
+    public double getGy() {
+        return this.gy;
+    }
+
     public void setGravity(double gx, double gy) {
         this.gx = gx;
         this.gy = gy;
@@ -337,55 +572,123 @@ public class Machine implements Comparable<Machine> {
      1.0 <-> All kinetic energy is conserved.
      0.0 <-> No kinetic energy is conserved. */
     public void dampenSpeed(double factor) {
+        if (this.store != null) {
+            int last = this.firstIndex + this.pointList.size();
+            for (int i = this.firstIndex; i < last; i++) {
+                this.store.vx[i] *= factor;
+                this.store.vy[i] *= factor;
+            }
+            return;
+        }
         for (int i = 0; i < this.pointList.size(); i++) {
             this.pointList.get(i).dampenSpeed(factor);
         }
     }
 
 
-    /* Insert the given collision in the list,
-     while keeping that list order relatively to time. */
-    private void insertCollision(Collision newColl, ArrayList<Collision> list) {
+    /* Detect the collisions between the points of this machine that happen within dt,
+     ordered by date in a binary heap. The same heap is reused by the next call.
+     The points are first stored in a spatial hash with cells large enough
+     that two points that collide within dt are in neighboring cells. */
+    public PriorityQueue<Collision> findSelfCollisions(double dt) {
 
-        if (list != null) {
-            int i = 0;
-            try {
-                Collision coll = list.get(0);
-                while (coll != null && coll.happensSoonerThan(newColl)) {
-                    i++;
-                    coll = list.get(i);
+        // System.out.println("Machine.findSelfCollisions");
+        if (this.selfCollisionQueue == null) {
+            this.selfCollisionQueue = new PriorityQueue<>();
+            this.selfCollisionPool = new CollisionPool();
+        }
+        PriorityQueue<Collision> queue = this.selfCollisionQueue;
+        while (!queue.isEmpty()) {
+            this.selfCollisionPool.release(queue.poll());
+        }
+
+        int nbPoints = this.pointList.size();
+        if (this.selfCollisionStamps == null || this.selfCollisionStamps.length < nbPoints) {
+            this.selfCollisionStamps = new int[nbPoints];
+            this.selfCollisionCounts = new int[nbPoints];
+        }
+        double maxRadius = 0;
+        double maxSpeed = 0;
+        for (int i = 0; i < nbPoints; i++) {
+            Point p = this.pointList.get(i);
+            maxRadius = Math.max(maxRadius, p.getRadius());
+            maxSpeed = Math.max(maxSpeed, Math.abs(p.getSpeedX()) + Math.abs(p.getSpeedY()));
+            this.selfCollisionStamps[i] = 0;
+            this.selfCollisionCounts[i] = 0;
+        }
+        if (this.spatialHash == null) {
+            this.spatialHash = new SpatialHash();
+        }
+        this.spatialHash.build(this.pointList, 2 * maxRadius + 2 * maxSpeed * dt);
+
+        for (int i = 0; i < nbPoints; i++) {
+            this.findSelfCollisions(i, dt, queue, true);
+        }
+        return queue;
+    }
+
+    /* Add to the queue the collisions of point i with the points in the neighboring
+     cells: only the points of greater index when onlyGreater is true, so that
+     each pair is tested once, or all the other points. */
+    private void findSelfCollisions(int i, double dt, PriorityQueue<Collision> queue, boolean onlyGreater) {
+        Point a = this.pointList.get(i);
+        int cx = this.spatialHash.getCellX(i);
+        int cy = this.spatialHash.getCellY(i);
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int j = this.spatialHash.getFirst(cx + dx, cy + dy); j >= 0; j = this.spatialHash.getNext(j)) {
+                    if ((j > i || (!onlyGreater && j != i))
+                            && this.spatialHash.getCellX(j) == cx + dx
+                            && this.spatialHash.getCellY(j) == cy + dy) {
+                        Collision coll = this.selfCollisionPool.obtain(a, this.pointList.get(j), 0, dt);
+                        if (coll.getDate() >= 0) {
+                            coll.setStamps(i, this.selfCollisionStamps[i], j, this.selfCollisionStamps[j]);
+                            queue.add(coll);
+                        } else {
+                            this.selfCollisionPool.release(coll);
+                        }
+                    }
                 }
-                // Element at index (i-1) is sooner than new collision; inserting at position i.
-            } catch (IndexOutOfBoundsException e) {
-                // No element at index i (list ends at i-1); inserting at position i.
             }
-            list.add(i, newColl);
         }
     }
 
-    /* Detect the collisions between the points of this machine,
-     and modify the speeds of all colliding points. */
-    public ArrayList<Collision> findSelfCollisions() {
-
-        // System.out.println("Machine.findSelfCollisions");
-        ArrayList<Collision> list = new ArrayList<>();
-
-        // TODO
-        for (int i = 0; i < this.pointList.size(); i++) {
-            Point a = this.pointList.get(i);
-            for (int j = i + 1; j < this.pointList.size(); j++) {
-                Point b = this.pointList.get(j);
-
-                Collision coll = a.getCollisionWith(b);
-
-                this.insertCollision(coll, list);
+    /**
+     * Solve the collisions between the points of this machine that would
+     * happen within dt, in the order of their dates. A solved collision
+     * invalidates the other collisions of its two points, and their next
+     * collisions are computed again with their new speeds.
+     *
+     * @param dt
+     */
+    public void selfCollide(double dt) {
+        PriorityQueue<Collision> queue = this.findSelfCollisions(dt);
+        while (!queue.isEmpty()) {
+            Collision coll = queue.poll();
+            int i = coll.getIndex();
+            int j = coll.getIndex1();
+            if (coll.getStamp() == this.selfCollisionStamps[i]
+                    && coll.getStamp1() == this.selfCollisionStamps[j]) {
+                coll.solve();
+                this.selfCollisionStamps[i]++;
+                this.selfCollisionStamps[j]++;
+                this.selfCollisionCounts[i]++;
+                this.selfCollisionCounts[j]++;
+                /* Only the speeds were changed: the points still move in a straight
+                 line from their positions at the start of the step. */
+                if (this.selfCollisionCounts[i] < NB_SELF_COLLISIONS_MAX) {
+                    this.findSelfCollisions(i, dt, queue, false);
+                }
+                if (this.selfCollisionCounts[j] < NB_SELF_COLLISIONS_MAX) {
+                    this.findSelfCollisions(j, dt, queue, false);
+                }
             }
+            this.selfCollisionPool.release(coll);
         }
-
-        return list;
     }
 
     public void increaseSpringSize(double fact) {
+        this.releaseSpringKernel();
         for (int i = 0; i < this.springList.size(); i++) {
             this.springList.get(i).increaseSize(fact);
         }
@@ -408,6 +711,9 @@ public class Machine implements Comparable<Machine> {
     public void addRandomPoint() {
         if (this.pointList.size() < NB_POINTS_MAX) {
 
+            // The new point would not fit in the range of the store; it must be attached again.
+            this.detach();
+
             double margin = 5; // how far the new point is allowed to be
 
             double xMin = getXMin() - margin;
@@ -415,20 +721,21 @@ public class Machine implements Comparable<Machine> {
             double yMin = getYMin() - margin;
             double yMax = getYMax() + margin;
 
-            double x = xMin + Math.random() * (xMax - xMin);
-            double y = yMin + Math.random() * (yMax - yMin);
+            Random r = ThreadLocalRandom.current();
+            double x = xMin + r.nextDouble() * (xMax - xMin);
+            double y = yMin + r.nextDouble() * (yMax - yMin);
 
             Point newPoint = new Point(x, y, 1);
 
             int size = pointList.size();
             if (size >= 1) {
                 // Create one spring.
-                int index0 = (int) (size * Math.random());
+                int index0 = r.nextInt(size);
                 Spring spring0 = new Spring(newPoint, pointList.get(index0));
                 springList.add(spring0);
                 if (size >= 2) {
                     // Create another spring
-                    int index1 = (int) (size * Math.random());
+                    int index1 = r.nextInt(size);
                     // but not from the same point as the first spring !
                     if (index1 == index0) {
                         index1 = index1 + 1;
@@ -441,6 +748,7 @@ public class Machine implements Comparable<Machine> {
                 }
             }
             pointList.add(newPoint);
+            this.springEnds = null;
         }
     }
 
@@ -453,9 +761,11 @@ public class Machine implements Comparable<Machine> {
 //        System.out.println("removing point");
         int size = pointList.size();
         if (size >= 1) {
-            int index = (int) (size * Math.random());
+            this.detach();
+            int index = ThreadLocalRandom.current().nextInt(size);
             Point removedPoint = pointList.get(index);
             pointList.remove(removedPoint);
+            this.springEnds = null;
             for (Spring s : springList) {
                 if (s.usesPoint(removedPoint)) {
 //                    springList.remove(s);
@@ -512,9 +822,11 @@ public class Machine implements Comparable<Machine> {
     public void changeRandomSpringLength() {
         if (springList.size() > 0) {
             int nbSprings = springList.size();
-            int index = (int) (Math.random() * nbSprings);
+            Random r = ThreadLocalRandom.current();
+            int index = r.nextInt(nbSprings);
+            this.releaseSpringKernel();
             Spring modifiedSpring = springList.get(index);
-            double fact = Math.random() + 0.5;
+            double fact = r.nextDouble() + 0.5;
             modifiedSpring.increaseSize(fact);
         }
     }
@@ -528,7 +840,7 @@ public class Machine implements Comparable<Machine> {
     public void mutate() {
 
         double probAddPoint = 0.01;
-        if (Math.random() <= probAddPoint) {
+        if (ThreadLocalRandom.current().nextDouble() <= probAddPoint) {
             addRandomPoint();
         }
 
@@ -540,7 +852,11 @@ public class Machine implements Comparable<Machine> {
     }
 
     private double getAltitude() {
-        double result = getYMax() - getYMin();
+        return getAltitude(getYMin(), getYMax());
+    }
+
+    private double getAltitude(double yMin, double yMax) {
+        double result = yMax - yMin;
 
         if (result == Double.NaN) {
             return -1;
@@ -551,8 +867,8 @@ public class Machine implements Comparable<Machine> {
         }
 
         // Penalty if the machine goes below 0 vertically
-        if (getYMin() < 0) {
-            result += 20 * getYMin();
+        if (yMin < 0) {
+            result += 20 * yMin;
         }
         return result;
     }
@@ -607,10 +923,25 @@ public class Machine implements Comparable<Machine> {
 
         double targetAltitude = 10;
 
-        double score = this.getAltitude() + (this.getXMax() - this.getXMin());
+        /* Bounding box of the machine, computed in a single pass. */
+        double xMin = Double.POSITIVE_INFINITY;
+        double xMax = Double.NEGATIVE_INFINITY;
+        double yMin = Double.POSITIVE_INFINITY;
+        double yMax = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < pointList.size(); i++) {
+            Point p = pointList.get(i);
+            double x = p.getX();
+            double y = p.getY();
+            xMin = Math.min(x, xMin);
+            xMax = Math.max(x, xMax);
+            yMin = Math.min(y, yMin);
+            yMax = Math.max(y, yMax);
+        }
+
+        double score = this.getAltitude(yMin, yMax) + (xMax - xMin);
         if (score > targetAltitude) {
-            for (Point p : pointList) {
-                if (p.getY() > targetAltitude) {
+            for (int i = 0; i < pointList.size(); i++) {
+                if (pointList.get(i).getY() > targetAltitude) {
                     // Bonus points for more points above target alti.
                     score += 1;
                 }
@@ -645,6 +976,7 @@ public class Machine implements Comparable<Machine> {
     }
 
     public void extendSprings(double dL) {
+        this.releaseSpringKernel();
         for (Spring s : springList) {
             s.setL0(s.getL0() + dL);
         }
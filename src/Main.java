@@ -1,69 +1,60 @@
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+/* This is a simulation program where 2d-machines will use engines and springs to move.
+
+ Usage: java Main [--resume] [options] [checkpointPath]
+ The run is saved to the checkpoint file (default machines.ckpt) with the 'k' key
+ or the Save button; with --resume, the run starts again from that file.
+ The options are those of BatchRunner (e.g. --store).
+ */
+import java.io.IOException;
+import java.util.ArrayList;
 
-/* This is a simulation program where 2d-machines will use engines and springs to move. */
 public class Main {
 
     public static void main(String args[]) {
 
 //        System.out.println("This is the main.");
-        int nbMachines = 1000;
-        World world = new World(nbMachines);
-        GraphicPanel panel = new GraphicPanel(world);
+        boolean resume = false;
+        String checkpointPath = "machines.ckpt";
+        ArrayList<String> options = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--resume")) {
+                resume = true;
+            } else if (arg.startsWith("--")) {
+                options.add(arg);
+            } else {
+                checkpointPath = arg;
+            }
+        }
+
+        GenerationScheduler scheduler = null;
+        if (resume) {
+            try {
+                scheduler = Checkpoint.load(checkpointPath);
+                System.out.println("Resumed generation " + scheduler.getGeneration()
+                        + " from " + checkpointPath);
+            } catch (IOException e) {
+                System.out.println("Could not resume from " + checkpointPath + ": " + e.getMessage());
+                return;
+            }
+        } else {
+            int nbMachines = 1000;
+            World world = new World(nbMachines);
+
+            /* One generation lasts 1000 steps of 0.05 s of simulated time,
+             whatever time it takes to compute them. */
+            int stepsPerGeneration = 1000;
+            scheduler = new GenerationScheduler(world, stepsPerGeneration);
+        }
+        if (!BatchRunner.applyOptions(options, scheduler.getWorld())) {
+            return;
+        }
+        scheduler.setVerbose(true);
+
+        GraphicPanel panel = new GraphicPanel(scheduler);
+        panel.setCheckpointPath(checkpointPath);
         Window window = new Window(panel);
         panel.repaint();
 
         panel.togglePlayPause();
-
-        int period = 10000; // 10000ms, or 10s;
-
-        Timer mainTimer = new Timer();
-
-        class MyTimerTask extends TimerTask {
-
-            World world;
-            int step = 0;
-
-            // Sort the machines every 1000 ms.
-            int sortingDelay = 1000;
-
-            public MyTimerTask(World w) {
-                world = w;
-            }
-
-            @Override
-            public void run() {
-                world.sortMachines();
-                world.killHalf();
-                world.breed();
-                world.mutate();
-                world.sortMachines();
-                Machine best = world.getBestMachine();
-                System.out.println("best: " + best.getScore()
-                        + " with " + best.getNbPoints() + " points.");
-            }
-        };
-
-        mainTimer.schedule(new MyTimerTask(world), 0, period);
-
-//        // Every 1000 ms, the machines must be sorted.
-//        Timer refreshTimer = new Timer();
-//        class RefreshTask extends TimerTask {
-//
-//            private World world;
-//
-//            public RefreshTask(World w) {
-//                world = w;
-//            }
-//
-//            @Override
-//            public void run() {
-//                world.sortMachines();
-//                System.out.println("timer sort");
-//            }
-//        }
-//        refreshTimer.schedule(new RefreshTask(world), 0, 1000);
     }
 }
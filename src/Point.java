@@ -1,24 +1,25 @@
-import java.awt.Color;
-import java.awt.Graphics;
-
 public class Point extends Solid {
 
     private double radius;
     private double mass;
     private double fx, fy; // Force applied on the point.
 
-    private Color color; // Todo
-
     private boolean isColliding;
 
+    /* When the point is attached to a store, its physical state is kept
+     in the arrays of that store, at the given index. */
+    private PointStore store;
+    private int index;
+
     public Point(double x, double y) {
         super(x, y);
         this.radius = 10;
         this.mass = 10;
-        this.color = Color.RED;
         this.fx = 0;
         this.fy = 0;
         isColliding = false;
+        this.store = null;
+        this.index = -1;
     }
 
     public Point(double x, double y, double radius) {
@@ -40,43 +41,175 @@ public class Point extends Solid {
         return new Point(this.getX(), this.getY(), this.getSpeedX(), this.getSpeedY(), this.radius);
     }
 
-    public void display(Graphics g,
-            double x0, double y0, double zoom,
-            int panelHeight) {
+    /**
+     * Move the physical state of the point into the given store. From now on,
+     * the point is only a view on its index in that store.
+     *
+     * @param s
+     */
+    public void attach(PointStore s) {
+        if (this.store != null) {
+            this.detach();
+        }
+        this.index = s.add(this.getX(), this.getY(),
+                this.getSpeedX(), this.getSpeedY(),
+                this.mass, this.radius);
+        this.store = s;
+    }
+
+    /**
+     * Copy the state of the point back from its store, and stop using that
+     * store.
+     */
+    public void detach() {
+        if (this.store != null) {
+            this.pos.setX(this.store.x[this.index]);
+            this.pos.setY(this.store.y[this.index]);
+            this.speed.setX(this.store.vx[this.index]);
+            this.speed.setY(this.store.vy[this.index]);
+            this.fx = this.store.fx[this.index];
+            this.fy = this.store.fy[this.index];
+            this.store = null;
+            this.index = -1;
+        }
+    }
+
+    public boolean isAttached() {
+        return this.store != null;
+    }
+
+    /**
+     * Index of the point in its store, or -1 when the point is not attached.
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    @Override
+    public double getX() {
+        if (this.store != null) {
+            return this.store.x[this.index];
+        }
+        return super.getX();
+    }
+
+    @Override
+    public double getY() {
+        if (this.store != null) {
+            return this.store.y[this.index];
+        }
+        return super.getY();
+    }
+
+    @Override
+    public void setPos(double x, double y) {
+        if (this.store != null) {
+            this.store.x[this.index] = x;
+            this.store.y[this.index] = y;
+        } else {
+            super.setPos(x, y);
+        }
+    }
+
+    @Override
+    public double getSpeedX() {
+        if (this.store != null) {
+            return this.store.vx[this.index];
+        }
+        return super.getSpeedX();
+    }
+
+    @Override
+    public double getSpeedY() {
+        if (this.store != null) {
+            return this.store.vy[this.index];
+        }
+        return super.getSpeedY();
+    }
+
+    @Override
+    public Vector2d getSpeed() {
+        return new Vector2d(this.getSpeedX(), this.getSpeedY());
+    }
+
+    @Override
+    public void setSpeedX(double vx) {
+        if (this.store != null) {
+            this.store.vx[this.index] = vx;
+        } else {
+            super.setSpeedX(vx);
+        }
+    }
 
-        int xDisplay = (int) (zoom * this.getX() + x0 - zoom * this.radius);
-        int yDisplay = (int) (panelHeight - (zoom * this.getY() + y0) - zoom * this.radius);
-        int dx = (int) (zoom * this.radius * 2);
-        int dy = (int) (zoom * this.radius * 2);
-        // System.out.println("Point.display(): x = " + xDisplay + ", y = " + yDisplay
-        // + ", dx = " + dx + ", dy = " + dy + ", speed(" + this.getSpeedX() + "," + this.getSpeedY() + "), color: " + this.color);
+    @Override
+    public void setSpeedY(double vy) {
+        if (this.store != null) {
+            this.store.vy[this.index] = vy;
+        } else {
+            super.setSpeedY(vy);
+        }
+    }
 
-//        if (dx == 0) {
-//            System.out.println("dx==0; zoom = " + zoom + ", this.radius = " + this.radius);
-//        }
-        if (isColliding) {
-            g.setColor(Color.ORANGE);
+    @Override
+    public void setSpeed(double vx, double vy) {
+        if (this.store != null) {
+            this.store.vx[this.index] = vx;
+            this.store.vy[this.index] = vy;
         } else {
-            g.setColor(this.color);
+            super.setSpeed(vx, vy);
+        }
+    }
+
+    @Override
+    public void translate(double dx, double dy) {
+        if (this.store != null) {
+            this.store.x[this.index] += dx;
+            this.store.y[this.index] += dy;
+        } else {
+            super.translate(dx, dy);
+        }
+    }
+
+    @Override
+    public void move(double dt) {
+        if (this.store != null) {
+            this.store.x[this.index] += dt * this.store.vx[this.index];
+            this.store.y[this.index] += dt * this.store.vy[this.index];
+            if (Double.isNaN(getX()) || Double.isNaN(getY())) {
+                setPos(0, 1000000000);
+            }
+        } else {
+            super.move(dt);
         }
-        g.fillOval(xDisplay, yDisplay, dx, dy);
-        g.setColor(Color.BLACK);
-        g.drawOval(xDisplay, yDisplay, dx, dy);
-        super.display(g, x0, y0, zoom, panelHeight);
     }
 
     public void razForces() {
-        this.fx = 0;
-        this.fy = 0;
+        if (this.store != null) {
+            this.store.fx[this.index] = 0;
+            this.store.fy[this.index] = 0;
+        } else {
+            this.fx = 0;
+            this.fy = 0;
+        }
     }
 
     public void receiveForce(double dfx, double dfy) {
-        this.fx += dfx;
-        this.fy += dfy;
+        if (this.store != null) {
+            this.store.fx[this.index] += dfx;
+            this.store.fy[this.index] += dfy;
+        } else {
+            this.fx += dfx;
+            this.fy += dfy;
+        }
     }
 
     public void updateSpeed(double dt) {
-        if (this.mass > 0) {
+        if (this.store != null) {
+            if (this.mass > 0) {
+                this.store.vx[this.index] += this.store.fx[this.index] * dt / this.mass;
+                this.store.vy[this.index] += this.store.fy[this.index] * dt / this.mass;
+            }
+        } else if (this.mass > 0) {
             this.speed.add(this.fx * dt / this.mass,
                     this.fy * dt / this.mass);
         }
@@ -86,38 +219,47 @@ public class Point extends Solid {
      1.0 <-> All kinetic energy is conserved.
      0.0 <-> No kinetic energy is conserved. */
     public void dampenSpeed(double factor) {
-        this.speed.mult(factor);
+        if (this.store != null) {
+            this.store.vx[this.index] *= factor;
+            this.store.vy[this.index] *= factor;
+        } else {
+            this.speed.mult(factor);
+        }
     }
 
     public void setRadius(double r) {
         this.radius = r;
+        if (this.store != null) {
+            this.store.radius[this.index] = r;
+        }
     }
 
     public double getRadius() {
         return this.radius;
     }
 
-    public void switchColor() {
-        if (this.color == Color.RED) {
-            this.color = Color.BLUE;
-        } else if (this.color == Color.BLUE) {
-            this.color = Color.RED;
-        } else {
-            this.color = Color.RED;
+    public void setMass(double m) {
+        this.mass = m;
+        if (this.store != null) {
+            this.store.mass[this.index] = m;
         }
     }
 
-    public void setColor(Color param) {
-        this.color = param;
+    public double getMass() {
+        return this.mass;
     }
 
-
     /* Return value:
      - the collision if it happens in the future;
      - null if no collision happens in the future. */
     public Collision getCollisionWith(Point other) {
+        return this.getCollisionWith(other, Double.POSITIVE_INFINITY);
+    }
+
+    /* Same, for a collision that happens within the given duration. */
+    public Collision getCollisionWith(Point other, double duration) {
 
-        Collision res = new Collision(this, other);
+        Collision res = new Collision(this, other, 0, duration);
         if (res.getDate() >= 0) {
             return res;
         } else {
@@ -125,6 +267,44 @@ public class Point extends Solid {
         }
     }
 
+    /**
+     * Collide with another point that may belong to another machine: when the
+     * two points overlap, they are pushed apart (the lighter one moves more),
+     * and the normal components of their speeds become equal if they were
+     * moving towards each other.
+     *
+     * @param other
+     */
+    public void collide(Point other) {
+        double dx = other.getX() - this.getX();
+        double dy = other.getY() - this.getY();
+        double r = this.radius + other.radius;
+        double dist2 = dx * dx + dy * dy;
+        if (dist2 >= r * r || this.mass <= 0 || other.mass <= 0) {
+            return;
+        }
+        double dist = Math.sqrt(dist2);
+        double nx = 1;
+        double ny = 0;
+        if (dist > 0) {
+            nx = dx / dist;
+            ny = dy / dist;
+        }
+        double overlap = r - dist;
+        double totalMass = this.mass + other.mass;
+        this.translate(-overlap * other.mass / totalMass * nx, -overlap * other.mass / totalMass * ny);
+        other.translate(overlap * this.mass / totalMass * nx, overlap * this.mass / totalMass * ny);
+
+        double vn = (other.getSpeedX() - this.getSpeedX()) * nx + (other.getSpeedY() - this.getSpeedY()) * ny;
+        if (vn < 0) {
+            double impulse = -vn / (1 / this.mass + 1 / other.mass);
+            this.setSpeed(this.getSpeedX() - impulse / this.mass * nx, this.getSpeedY() - impulse / this.mass * ny);
+            other.setSpeed(other.getSpeedX() + impulse / other.mass * nx, other.getSpeedY() + impulse / other.mass * ny);
+        }
+        this.setColliding(true);
+        other.setColliding(true);
+    }
+
     /**
      * Tell the point that it is colliding with something.
      *
@@ -0,0 +1,82 @@
+/* Flat storage for the physical state of many points (structure of arrays).
+
+ Instead of one heap object per point, the state of every attached point is kept
+ in parallel primitive arrays, and a point is identified by its index in these arrays.
+ The machines of a World can all be attached to the same store, so that
+ the forces, speeds and positions are updated by linear sweeps over the arrays.
+ */
+import java.util.Arrays;
+
+public class PointStore {
+
+    /* The arrays are accessed directly by the physics code (Machine, Spring),
+     only the first size() elements are meaningful. */
+    double[] x, y; // Positions
+    double[] vx, vy; // Speeds
+    double[] fx, fy; // Forces applied on the points
+    double[] mass;
+    double[] radius;
+
+    private int size;
+
+    public PointStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.vx = new double[capacity];
+        this.vy = new double[capacity];
+        this.fx = new double[capacity];
+        this.fy = new double[capacity];
+        this.mass = new double[capacity];
+        this.radius = new double[capacity];
+        this.size = 0;
+    }
+
+    public PointStore() {
+        this(1024);
+    }
+
+    /**
+     * Add a new point to the store.
+     *
+     * @return the index of the new point
+     */
+    public int add(double xP, double yP, double vxP, double vyP, double massP, double radiusP) {
+        if (this.size == this.x.length) {
+            this.grow(2 * this.size);
+        }
+        int index = this.size;
+        this.x[index] = xP;
+        this.y[index] = yP;
+        this.vx[index] = vxP;
+        this.vy[index] = vyP;
+        this.fx[index] = 0;
+        this.fy[index] = 0;
+        this.mass[index] = massP;
+        this.radius[index] = radiusP;
+        this.size++;
+        return index;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Forget all the points; the arrays are kept and reused.
+     */
+    public void clear() {
+        this.size = 0;
+    }
+
+    private void grow(int capacity) {
+        this.x = Arrays.copyOf(this.x, capacity);
+        this.y = Arrays.copyOf(this.y, capacity);
+        this.vx = Arrays.copyOf(this.vx, capacity);
+        this.vy = Arrays.copyOf(this.vy, capacity);
+        this.fx = Arrays.copyOf(this.fx, capacity);
+        this.fy = Arrays.copyOf(this.fy, capacity);
+        this.mass = Arrays.copyOf(this.mass, capacity);
+        this.radius = Arrays.copyOf(this.radius, capacity);
+    }
+}
@@ -0,0 +1,17 @@
+/* A renderer draws one frame of a world.
+
+ The frame is an immutable snapshot taken by the simulation thread,
+ so that the simulation classes (World, Machine, Point, Spring, Block) know nothing
+ about the way they are drawn and the simulation can run without any graphical library.
+
+ The origin of the world is drawn at the pixel (x0, y0), counted from the lower-left corner,
+ and zoom is the amount of pixels per unit of length.
+ Either the machines are superposed (each one is drawn in the same referential),
+ or each one is drawn in its own cell of a grid with nbMachinesPerColumn cells per line.
+ */
+public interface Renderer {
+
+    public void render(FrameSnapshot frame,
+            double x0, double y0, double zoom,
+            boolean superposed, int nbMachinesPerColumn);
+}
@@ -0,0 +1,17 @@
+/* A selection strategy makes the next generation of a world from the machines
+ that were just evaluated.
+
+ The scores are computed once per generation, and the best machine is found
+ at the same time; no strategy sorts the machines.
+ */
+public interface Selection {
+
+    /**
+     * Replace the machines of the world by the next generation.
+     *
+     * @param world
+     * @return the best machine of the generation that was just evaluated; it
+     * stays in the world. Null when the world has no machine.
+     */
+    public Machine nextGeneration(World world);
+}
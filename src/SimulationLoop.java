@@ -0,0 +1,237 @@
+/* This class runs the simulation on its own thread, away from the Swing EDT.
+
+ The loop runs once per frame period. The wall-clock time elapsed since the previous
+ frame, multiplied by the speed, is added to an accumulator of simulated time,
+ which is then consumed by steps of fixed duration dt. At most maxSubsteps steps are
+ done per frame: when the computer cannot keep up, the simulation slows down
+ instead of falling further and further behind.
+
+ After the steps of a frame, the thread publishes an immutable FrameSnapshot
+ through an AtomicReference; the EDT only reads the latest published frame,
+ so neither thread ever waits for the other.
+ Any change to the world requested by the GUI is submitted as a command, and runs
+ on the simulation thread between two steps.
+ An exception thrown by a command or by a step is printed, and does not stop the
+ thread: a failed command is skipped, a failed step pauses the simulation.
+ */
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SimulationLoop implements Runnable {
+
+    private World world;
+    private GenerationScheduler scheduler; // Optional; runs the selection between two steps.
+
+    private volatile double dt; // Simulated time of one step, in seconds.
+    private volatile double speed; // Seconds of simulated time per second of wall-clock time.
+    private volatile int maxSubsteps; // Maximum number of steps per frame.
+    private double accumulator; // Simulated time not consumed yet by the steps.
+    private long lastTime;
+
+    private LinkedBlockingQueue<Runnable> commands;
+    private AtomicReference<FrameSnapshot> latestFrame;
+    private long framePeriod; // In nanoseconds.
+
+    private volatile boolean isPlaying;
+    private volatile boolean isAlive;
+    private Thread thread;
+
+    public SimulationLoop(World w, GenerationScheduler s, double dt, int maxFps) {
+        this.world = w;
+        this.scheduler = s;
+        this.dt = dt;
+        /* Same pace as the former Swing timer: one step of 0.05 s every 10 ms. */
+        this.speed = 5;
+        this.maxSubsteps = 20;
+        this.accumulator = 0;
+        this.commands = new LinkedBlockingQueue<>();
+        this.latestFrame = new AtomicReference<>(new FrameSnapshot(w));
+        this.framePeriod = 1000000000L / maxFps;
+        this.isPlaying = false;
+        this.isAlive = false;
+    }
+
+    public void start() {
+        if (this.thread == null) {
+            this.isAlive = true;
+            this.thread = new Thread(this, "Simulation");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+    }
+
+    /**
+     * Stop the simulation thread after the current step.
+     */
+    public void stop() {
+        this.isAlive = false;
+        if (this.thread != null) {
+            this.thread.interrupt();
+            this.thread = null;
+        }
+    }
+
+    public void play() {
+        this.isPlaying = true;
+        this.submit(new Runnable() {
+            public void run() {
+                world.play();
+            }
+        });
+    }
+
+    public void pause() {
+        this.isPlaying = false;
+        this.submit(new Runnable() {
+            public void run() {
+                world.pause();
+            }
+        });
+    }
+
+    public boolean isPlaying() {
+        return this.isPlaying;
+    }
+
+    /**
+     * Run the command on the simulation thread, before the next step. A new
+     * frame is published right after it.
+     */
+    public void submit(Runnable command) {
+        this.commands.add(command);
+    }
+
+    /**
+     * The last frame published by the simulation thread; may be called from
+     * any thread.
+     */
+    public FrameSnapshot getLatestFrame() {
+        return this.latestFrame.get();
+    }
+
+    public World getWorld() {
+        return this.world;
+    }
+
+    public GenerationScheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    public double getDt() {
+        return this.dt;
+    }
+
+    public void setDt(double newDt) {
+        if (newDt > 0) {
+            this.dt = newDt;
+        }
+    }
+
+    public double getSpeed() {
+        return this.speed;
+    }
+
+    public void setSpeed(double newSpeed) {
+        if (newSpeed > 0) {
+            this.speed = newSpeed;
+        }
+    }
+
+    public int getMaxSubsteps() {
+        return this.maxSubsteps;
+    }
+
+    public void setMaxSubsteps(int n) {
+        if (n > 0) {
+            this.maxSubsteps = n;
+        }
+    }
+
+    @Override
+    public void run() {
+        this.lastTime = System.nanoTime();
+        while (this.isAlive) {
+            try {
+                long frameStart = System.nanoTime();
+                boolean hasChanged = this.runCommands();
+
+                if (this.isPlaying) {
+                    this.accumulator += (frameStart - this.lastTime) * 1e-9 * this.speed;
+                    double stepDuration = this.dt;
+                    int nbSteps = 0;
+                    while (this.isPlaying && this.accumulator >= stepDuration && nbSteps < this.maxSubsteps) {
+                        this.step(stepDuration);
+                        this.accumulator -= stepDuration;
+                        nbSteps++;
+                    }
+                    if (this.accumulator >= stepDuration) {
+                        // Too late: drop the time that could not be simulated.
+                        this.accumulator = 0;
+                    }
+                    hasChanged = hasChanged || nbSteps > 0;
+                } else {
+                    this.accumulator = 0;
+                }
+                this.lastTime = frameStart;
+
+                if (hasChanged) {
+                    this.latestFrame.set(new FrameSnapshot(this.world));
+                }
+
+                /* Wait for the next frame, or for the next command. */
+                long delay = frameStart + this.framePeriod - System.nanoTime();
+                if (delay > 0) {
+                    Runnable command = this.commands.poll(delay, TimeUnit.NANOSECONDS);
+                    if (command != null) {
+                        this.runCommand(command);
+                        this.latestFrame.set(new FrameSnapshot(this.world));
+                    }
+                }
+            } catch (InterruptedException e) {
+                // The loop ends when isAlive is false.
+            } catch (RuntimeException e) {
+                // E.g. the frame could not be copied; the thread must not die silently.
+                System.out.println("Simulation frame failed, pausing: " + e);
+                this.isPlaying = false;
+                this.world.pause();
+                this.lastTime = System.nanoTime();
+            }
+        }
+    }
+
+    /* Run all the pending commands; return true if there was at least one. */
+    private boolean runCommands() {
+        boolean res = false;
+        Runnable command = this.commands.poll();
+        while (command != null) {
+            this.runCommand(command);
+            res = true;
+            command = this.commands.poll();
+        }
+        return res;
+    }
+
+    private void runCommand(Runnable command) {
+        try {
+            command.run();
+        } catch (RuntimeException e) {
+            System.out.println("Command failed: " + e);
+        }
+    }
+
+    /* A step that fails pauses the simulation, instead of failing again at each frame. */
+    private void step(double stepDuration) {
+        try {
+            if (this.scheduler != null) {
+                this.scheduler.step(stepDuration);
+            } else {
+                this.world.evolve(stepDuration);
+            }
+        } catch (RuntimeException e) {
+            System.out.println("Simulation step failed, pausing: " + e);
+            this.isPlaying = false;
+            this.world.pause();
+        }
+    }
+}
@@ -1,6 +1,4 @@
 /* This class describes an object that can translate and rotate. */
-import java.awt.Color;
-import java.awt.Graphics;
 import java.util.ArrayList;
 
 public class Solid {
@@ -32,7 +30,7 @@ public class Solid {
     }
 
     public void setPos(double x, double y) {
-        this.pos = new Vector2d(x, y);
+        this.pos.set(x, y);
     }
 
     public void setSpeedX(double vx) {
@@ -44,7 +42,7 @@ public class Solid {
     }
 
     public void setSpeed(double vx, double vy) {
-        this.speed = new Vector2d(vx, vy);
+        this.speed.set(vx, vy);
     }
 
     public double getSpeedX() {
@@ -87,13 +85,13 @@ public class Solid {
     public void translate(double dx, double dy) {
 
         /* Move the solid. */
-        this.pos.add(new Vector2d(dx, dy));
+        this.pos.add(dx, dy);
     }
 
     /* Move the point according to its current speed. */
     public void move(double dt) {
 
-        this.prevPos = this.pos.clone();
+        this.prevPos.set(this.pos);
 
         this.translate(dt * this.speed.getX(), dt * this.speed.getY());
         this.updateTrail();
@@ -108,34 +106,6 @@ public class Solid {
 
     }
 
-    public void display(Graphics g,
-            double x0, double y0, double zoom,
-            int panelHeight) {
-
-        this.displayTrack(g, x0, y0, zoom, panelHeight);
-    }
-
-    public void displayTrack(Graphics g,
-            double x0, double y0, double zoom,
-            int panelHeight) {
-
-        // System.out.println("Solid.displayTrack: size = " + this.trail.size());
-		/* Display the list of previous positions of the solid. */
-        for (int i = 0; i < this.trail.size(); i++) {
-
-            /* Real coordinates of the position. */
-            double x = this.trail.get(i).getX();
-            double y = this.trail.get(i).getY();
-
-            /* Coordinates on the panel. */
-            int x2 = (int) (zoom * x + x0);
-            int y2 = (int) (panelHeight - (zoom * y + y0));
-
-            g.setColor(Color.BLACK);
-            g.fillOval(x2 - 1, y2 - 1, 3, 3);
-        }
-    }
-
     public void clearTrail() {
         this.trail.clear();
     }
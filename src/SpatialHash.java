@@ -0,0 +1,98 @@
+/* Spatial hash over the points of a machine.
+
+ The plane is divided into square cells, and each point is stored in the cell
+ that contains its center. Two points closer than the size of a cell are
+ always in the same cell or in two neighboring cells, so looking for the
+ neighbors of a point only visits 9 cells instead of all the points.
+
+ The cells are stored in a hash table of linked lists made of int arrays,
+ which are reused from one build to the next.
+ */
+import java.util.ArrayList;
+
+public class SpatialHash {
+
+    private double cellSize;
+
+    private int[] head; // First point of each bucket, or -1
+    private int[] next; // Next point in the same bucket, or -1
+    private int[] cellX, cellY; // Cell of each point
+    private int mask;
+    private int nbPoints;
+
+    public SpatialHash() {
+        this.head = new int[0];
+        this.next = new int[0];
+        this.cellX = new int[0];
+        this.cellY = new int[0];
+        this.nbPoints = 0;
+    }
+
+    /**
+     * Store all the given points in cells of the given size.
+     */
+    public void build(ArrayList<Point> points, double cellSize) {
+        this.cellSize = cellSize;
+        this.nbPoints = points.size();
+
+        int nbBuckets = Integer.highestOneBit(Math.max(2 * this.nbPoints, 1) - 1) << 1;
+        nbBuckets = Math.max(nbBuckets, 2);
+        if (this.head.length != nbBuckets) {
+            this.head = new int[nbBuckets];
+        }
+        this.mask = nbBuckets - 1;
+        if (this.next.length < this.nbPoints) {
+            this.next = new int[this.nbPoints];
+            this.cellX = new int[this.nbPoints];
+            this.cellY = new int[this.nbPoints];
+        }
+
+        for (int h = 0; h < nbBuckets; h++) {
+            this.head[h] = -1;
+        }
+        for (int i = 0; i < this.nbPoints; i++) {
+            Point p = points.get(i);
+            this.cellX[i] = this.getCellCoordinate(p.getX());
+            this.cellY[i] = this.getCellCoordinate(p.getY());
+            int h = this.getBucket(this.cellX[i], this.cellY[i]);
+            this.next[i] = this.head[h];
+            this.head[h] = i;
+        }
+    }
+
+    private int getCellCoordinate(double x) {
+        double c = Math.floor(x / this.cellSize);
+        if (!(c > Integer.MIN_VALUE && c < Integer.MAX_VALUE)) {
+            return 0; // NaN or too far away.
+        }
+        return (int) c;
+    }
+
+    private int getBucket(int cx, int cy) {
+        return (cx * 73856093 ^ cy * 19349663) & this.mask;
+    }
+
+    public int getCellX(int point) {
+        return this.cellX[point];
+    }
+
+    public int getCellY(int point) {
+        return this.cellY[point];
+    }
+
+    /**
+     * First point of the bucket that contains the given cell, or -1. The
+     * bucket may also contain points of other cells: check getCellX and
+     * getCellY.
+     */
+    public int getFirst(int cx, int cy) {
+        return this.head[this.getBucket(cx, cy)];
+    }
+
+    /**
+     * Next point in the same bucket, or -1.
+     */
+    public int getNext(int point) {
+        return this.next[point];
+    }
+}
@@ -1,6 +1,5 @@
-import java.awt.Color;
-import java.awt.Graphics;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Spring {
 
@@ -62,26 +61,13 @@ public class Spring {
 
     }
 
-    public void display(Graphics g, double x0, double y0, double zoom, int panelHeight) {
-
-        g.setColor(Color.BLUE);
-        if (hasTwoEnds()) {
-
-            int xDisplay0 = (int) (zoom * this.start.getX() + x0);
-            int yDisplay0 = (int) (panelHeight - (zoom * this.start.getY() + y0));
-            int xDisplay1 = (int) (zoom * this.end.getX() + x0);
-            int yDisplay1 = (int) (panelHeight - (zoom * this.end.getY() + y0));
-
-            g.drawLine(xDisplay0, yDisplay0, xDisplay1, yDisplay1);
-        }
-    }
-
     /* The spring applies a force on both its points (start and end),
      which modifies the speed of these points. */
     public void applyForce(double dt) {
         if (hasTwoEnds()) {
 //            System.out.println("Spring apply force");
-            double dl = this.getLength() - this.l0;
+            double length = this.getLength();
+            double dl = length - this.l0;
             // System.out.println("dl = " + dl + ", l = " + this.getLength());
             double dx = this.end.getX() - this.start.getX();
             double dy = this.end.getY() - this.start.getY();
@@ -100,18 +86,18 @@ public class Spring {
             double dfy;
 
             // System.out.println("Spring.applyForce(): length = " + this.getLength());
-            if (this.getLength() > 0.001) {
+            if (length > 0.001) {
 
                 if (l0 == 0) {
                     System.out.println("warning Spring l0 == 0");
                 }
                 dfxElastic = -(this.strength * dl * (dx / this.l0));
 //                System.out.println("l0 = " + l0 + ", strength = " + strength);
-                dfxDamping = this.damping * (this.prevLength - this.getLength()) * (dx / this.l0);
+                dfxDamping = this.damping * (this.prevLength - length) * (dx / this.l0);
                 dfx = (dfxElastic + dfxDamping);
 
                 dfyElastic = -(this.strength * dl * (dy / this.l0));
-                dfyDamping = this.damping * (this.prevLength - this.getLength()) * (dy / this.l0);
+                dfyDamping = this.damping * (this.prevLength - length) * (dy / this.l0);
                 dfy = (dfyElastic + dfyDamping);
 
 //                System.out.println("Damping: dfx = " + dfxDamping
@@ -121,8 +107,7 @@ public class Spring {
             } else {
                 // Special case where the spring is reduced to a point. The reaction is random.
                 // System.out.println("same point.");
-                Random r = new Random();
-                double fact = 100;
+                Random r = ThreadLocalRandom.current();
                 dfx = 10 * (r.nextDouble() - 0.5);
                 dfy = 10 * (r.nextDouble() - 0.5);
             }
@@ -137,6 +122,36 @@ public class Spring {
         this.prevLength = this.getLength();
     }
 
+    public double getStrength() {
+        return this.strength;
+    }
+
+    public void setDamping(double param) {
+        if (param >= 0) {
+            this.damping = param;
+        }
+    }
+
+    public double getDamping() {
+        return this.damping;
+    }
+
+    public double getPrevLength() {
+        return this.prevLength;
+    }
+
+    public void setPrevLength(double param) {
+        this.prevLength = param;
+    }
+
+    public Point getStart() {
+        return this.start;
+    }
+
+    public Point getEnd() {
+        return this.end;
+    }
+
     public void increaseSize(double fact) {
         this.prevLength = this.l0;
         this.setL0(this.l0 * fact);
@@ -0,0 +1,120 @@
+/* Compiled form of the springs of a machine attached to a point store.
+
+ The springs are stored as parallel arrays: the store indices of their two ends,
+ their default length, strength, damping and previous length.
+ Each length is computed once per step, and the forces are accumulated
+ directly into the force arrays of the store.
+ The force is the same as in Spring.applyForce.
+ */
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class SpringKernel {
+
+    /* Package-private, like the arrays of PointStore, for the integrators. */
+    int nbSprings;
+    int[] start, end;
+    double[] l0;
+    double[] strength;
+    double[] damping;
+    double[] prevLength;
+    double[] length; // Lengths computed by the last call to applyForces.
+
+    /* The points of all the springs must already be attached to the store. */
+    public SpringKernel(ArrayList<Spring> springList) {
+        int n = 0;
+        for (int i = 0; i < springList.size(); i++) {
+            if (springList.get(i).hasTwoEnds()) {
+                n++;
+            }
+        }
+        this.nbSprings = n;
+        this.start = new int[n];
+        this.end = new int[n];
+        this.l0 = new double[n];
+        this.strength = new double[n];
+        this.damping = new double[n];
+        this.prevLength = new double[n];
+        this.length = new double[n];
+
+        int k = 0;
+        for (int i = 0; i < springList.size(); i++) {
+            Spring s = springList.get(i);
+            if (s.hasTwoEnds()) {
+                this.start[k] = s.getStart().getIndex();
+                this.end[k] = s.getEnd().getIndex();
+                this.l0[k] = s.getL0();
+                this.strength[k] = s.getStrength();
+                this.damping[k] = s.getDamping();
+                this.prevLength[k] = s.getPrevLength();
+                k++;
+            }
+        }
+    }
+
+    public int getNbSprings() {
+        return this.nbSprings;
+    }
+
+    /**
+     * Add the force of every spring to the forces of its two ends.
+     */
+    public void applyForces(PointStore s, double dt) {
+        double[] x = s.x;
+        double[] y = s.y;
+        double[] fx = s.fx;
+        double[] fy = s.fy;
+
+        for (int k = 0; k < this.nbSprings; k++) {
+            int a = this.start[k];
+            int b = this.end[k];
+            double dx = x[b] - x[a];
+            double dy = y[b] - y[a];
+            double l = Math.sqrt(dx * dx + dy * dy);
+            this.length[k] = l;
+
+            double dfx;
+            double dfy;
+            if (l > 0.001) {
+                double dl = l - this.l0[k];
+                double damped = this.damping[k] * (this.prevLength[k] - l);
+                dfx = -(this.strength[k] * dl * (dx / this.l0[k])) + damped * (dx / this.l0[k]);
+                dfy = -(this.strength[k] * dl * (dy / this.l0[k])) + damped * (dy / this.l0[k]);
+            } else {
+                // Special case where the spring is reduced to a point. The reaction is random.
+                Random r = ThreadLocalRandom.current();
+                dfx = 10 * (r.nextDouble() - 0.5);
+                dfy = 10 * (r.nextDouble() - 0.5);
+            }
+
+            fx[b] += dfx;
+            fy[b] += dfy;
+            fx[a] -= dfx;
+            fy[a] -= dfy;
+        }
+    }
+
+    /**
+     * The current lengths become the previous lengths. The points must not
+     * have moved since the last call to applyForces.
+     */
+    public void updateLengths() {
+        System.arraycopy(this.length, 0, this.prevLength, 0, this.nbSprings);
+    }
+
+    /**
+     * Copy the previous lengths back into the springs, which are the reference
+     * once the kernel is no longer used.
+     */
+    public void writeBack(ArrayList<Spring> springList) {
+        int k = 0;
+        for (int i = 0; i < springList.size(); i++) {
+            Spring s = springList.get(i);
+            if (s.hasTwoEnds()) {
+                s.setPrevLength(this.prevLength[k]);
+                k++;
+            }
+        }
+    }
+}
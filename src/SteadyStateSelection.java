@@ -0,0 +1,86 @@
+/* Steady state: only the nbReplaced worst machines (found by quickselect) are
+ replaced, each one by a mutated clone of the winner of a tournament among the
+ other machines. The other machines are kept as they are, without mutation.
+ */
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class SteadyStateSelection implements Selection {
+
+    private int nbReplaced;
+    private int tournamentSize;
+
+    public SteadyStateSelection(int nbReplaced) {
+        this(nbReplaced, 2);
+    }
+
+    public SteadyStateSelection(int nbReplaced, int tournamentSize) {
+        this.nbReplaced = Math.max(1, nbReplaced);
+        this.tournamentSize = Math.max(1, tournamentSize);
+    }
+
+    public int getNbReplaced() {
+        return this.nbReplaced;
+    }
+
+    public int getTournamentSize() {
+        return this.tournamentSize;
+    }
+
+    @Override
+    public Machine nextGeneration(World world) {
+        int n = world.getNbMachines();
+        if (n == 0) {
+            return null;
+        }
+        double[] scores = world.computeScores();
+        int[] worst = world.selectWorst(Math.min(this.nbReplaced, n - 1));
+        int bestIndex = world.getBestIndex();
+        Machine best = world.getMachine(bestIndex);
+
+        boolean[] isReplaced = new boolean[n];
+        for (int i : worst) {
+            isReplaced[i] = true;
+        }
+
+        /* When the scores are equal, the best machine may be among the worst ones:
+         a machine that stays has the same score, and is replaced instead. */
+        if (isReplaced[bestIndex]) {
+            int other = 0;
+            while (isReplaced[other]) {
+                other++;
+            }
+            for (int k = 0; k < worst.length; k++) {
+                if (worst[k] == bestIndex) {
+                    worst[k] = other;
+                }
+            }
+            isReplaced[bestIndex] = false;
+            isReplaced[other] = true;
+        }
+
+        /* All the parents are chosen among the machines that stay. */
+        for (int i : worst) {
+            int winner = this.drawParent(isReplaced, n);
+            for (int t = 1; t < this.tournamentSize; t++) {
+                int candidate = this.drawParent(isReplaced, n);
+                if (scores[candidate] > scores[winner]) {
+                    winner = candidate;
+                }
+            }
+            Machine child = world.getMachine(winner).clone();
+            child.mutate();
+            world.replaceMachine(i, child);
+        }
+        return best;
+    }
+
+    private int drawParent(boolean[] isReplaced, int n) {
+        Random r = ThreadLocalRandom.current();
+        int res = r.nextInt(n);
+        while (isReplaced[res]) {
+            res = r.nextInt(n);
+        }
+        return res;
+    }
+}
@@ -0,0 +1,139 @@
+/* Broad phase for the collisions between machines.
+
+ Each machine is enclosed in an axis-aligned box. The boxes are kept sorted
+ by their left side; two machines can only touch when their boxes overlap
+ on the x-axis, i.e. when the second one starts before the first one ends.
+ The machines move little between two steps, so the order of the previous
+ step is almost sorted and an insertion sort restores it in nearly linear time.
+ The sweep is only fast when few boxes overlap: the machines of a new world are
+ all created at the same place, where every pair would be tested, so the world
+ spreads them over the arena first (see World.setArenaMode).
+ */
+import java.util.ArrayList;
+
+public class SweepAndPrune {
+
+    private Machine[] machines;
+    private int[] order; // Indices of the machines, sorted by xMin.
+    private double[] xMin, xMax, yMin, yMax;
+    private int nbMachines;
+
+    private int nbPairs; // Number of overlapping boxes found during the last step.
+
+    public SweepAndPrune() {
+        this.machines = new Machine[0];
+        this.order = new int[0];
+        this.nbMachines = 0;
+    }
+
+    /**
+     * Update the boxes of all the machines, and sort them again.
+     */
+    public void update(ArrayList<Machine> machineList) {
+        if (!this.hasSameMachines(machineList)) {
+            // The population has changed: start again from the order of the list.
+            this.nbMachines = machineList.size();
+            this.machines = machineList.toArray(new Machine[0]);
+            this.order = new int[this.nbMachines];
+            this.xMin = new double[this.nbMachines];
+            this.xMax = new double[this.nbMachines];
+            this.yMin = new double[this.nbMachines];
+            this.yMax = new double[this.nbMachines];
+            for (int i = 0; i < this.nbMachines; i++) {
+                this.order[i] = i;
+            }
+        }
+
+        for (int i = 0; i < this.nbMachines; i++) {
+            this.computeBox(i);
+        }
+
+        /* Insertion sort, starting from the order of the previous step. */
+        for (int k = 1; k < this.nbMachines; k++) {
+            int current = this.order[k];
+            double key = this.xMin[current];
+            int j = k - 1;
+            while (j >= 0 && this.xMin[this.order[j]] > key) {
+                this.order[j + 1] = this.order[j];
+                j--;
+            }
+            this.order[j + 1] = current;
+        }
+    }
+
+    private boolean hasSameMachines(ArrayList<Machine> machineList) {
+        if (machineList.size() != this.nbMachines) {
+            return false;
+        }
+        for (int i = 0; i < this.nbMachines; i++) {
+            if (machineList.get(i) != this.machines[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Box of the machine i, including the radius of its points. */
+    private void computeBox(int i) {
+        Machine m = this.machines[i];
+        double x0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY;
+        double y0 = Double.POSITIVE_INFINITY;
+        double y1 = Double.NEGATIVE_INFINITY;
+        for (int j = 0; j < m.getNbPoints(); j++) {
+            Point p = m.getPoint(j);
+            double r = p.getRadius();
+            x0 = Math.min(x0, p.getX() - r);
+            x1 = Math.max(x1, p.getX() + r);
+            y0 = Math.min(y0, p.getY() - r);
+            y1 = Math.max(y1, p.getY() + r);
+        }
+        this.xMin[i] = x0;
+        this.xMax[i] = x1;
+        this.yMin[i] = y0;
+        this.yMax[i] = y1;
+    }
+
+    /**
+     * Collide all the pairs of machines whose boxes overlap.
+     */
+    public void collide() {
+        this.nbPairs = 0;
+        for (int k = 0; k < this.nbMachines; k++) {
+            int a = this.order[k];
+            for (int l = k + 1; l < this.nbMachines; l++) {
+                int b = this.order[l];
+                if (this.xMin[b] > this.xMax[a]) {
+                    // All the next boxes start even further right.
+                    break;
+                }
+                if (this.yMin[b] <= this.yMax[a] && this.yMin[a] <= this.yMax[b]) {
+                    this.nbPairs++;
+                    this.collide(a, b);
+                }
+            }
+        }
+    }
+
+    /* Narrow phase: test each point of a against each point of b,
+     skipping the points of a that are outside the box of b. */
+    private void collide(int a, int b) {
+        Machine ma = this.machines[a];
+        Machine mb = this.machines[b];
+        for (int i = 0; i < ma.getNbPoints(); i++) {
+            Point p = ma.getPoint(i);
+            double r = p.getRadius();
+            if (p.getX() + r < this.xMin[b] || p.getX() - r > this.xMax[b]
+                    || p.getY() + r < this.yMin[b] || p.getY() - r > this.yMax[b]) {
+                continue;
+            }
+            for (int j = 0; j < mb.getNbPoints(); j++) {
+                p.collide(mb.getPoint(j));
+            }
+        }
+    }
+
+    public int getNbPairs() {
+        return this.nbPairs;
+    }
+}
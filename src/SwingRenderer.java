@@ -0,0 +1,200 @@
+/* Renderer that draws a frame with java.awt.Graphics, in a panel of the given size.
+ Only what is visible in the panel is drawn.
+
+ The level of detail of a machine depends on its size on the screen:
+ below DOT_SIZE pixels it is a dot, below BOX_SIZE pixels it is its bounding box,
+ and above that all its points and springs are drawn.
+ Its score is written only when it is larger than LABEL_SIZE pixels. */
+import java.awt.Color;
+import java.awt.Graphics;
+
+public class SwingRenderer implements Renderer {
+
+    private static final double MARGIN = 20; // In pixels.
+
+    /* Levels of detail, in pixels. */
+    private static final double DOT_SIZE = 4;
+    private static final double BOX_SIZE = 16;
+    private static final double LABEL_SIZE = 48;
+
+    private Graphics g;
+    private int panelWidth, panelHeight;
+
+    public SwingRenderer(Graphics g, int panelWidth, int panelHeight) {
+        this.g = g;
+        this.panelWidth = panelWidth;
+        this.panelHeight = panelHeight;
+    }
+
+    @Override
+    public void render(FrameSnapshot frame,
+            double x0, double y0, double zoom,
+            boolean superposed, int nbMachinesPerColumn) {
+
+        if (superposed) {
+            /* Display all machines on the same referential: the blocks are drawn once. */
+            this.drawBlocksIfVisible(frame, x0, y0, zoom);
+            for (int i = 0; i < frame.getNbMachines(); i++) {
+                this.drawMachineIfVisible(frame, i, x0, y0, zoom);
+            }
+            return;
+        }
+
+        /* Display each machine in a dedicated cell of the grid;
+         the cells that are out of the panel are skipped. */
+        for (int i = 0; i < frame.getNbMachines(); i++) {
+            int numLine = i / nbMachinesPerColumn;
+            int numCol = i - numLine * nbMachinesPerColumn;
+            double dx = frame.getWorldWidth() * numCol * zoom;
+            double dy = -frame.getWorldHeight() * numLine * zoom;
+
+            this.drawBlocksIfVisible(frame, x0 + dx, y0 + dy, zoom);
+            this.drawMachineIfVisible(frame, i, x0 + dx, y0 + dy, zoom);
+        }
+    }
+
+    private void drawBlocksIfVisible(FrameSnapshot frame, double x0, double y0, double zoom) {
+        if (this.isVisible(frame.getBlocksXMin(), frame.getBlocksXMax(),
+                frame.getBlocksYMin(), frame.getBlocksYMax(), x0, y0, zoom)) {
+            for (int j = 0; j < frame.getNbBlocks(); j++) {
+                this.drawBlock(frame, j, x0, y0, zoom);
+            }
+        }
+    }
+
+    /* The machine may have left its cell, so its own box is tested. */
+    private void drawMachineIfVisible(FrameSnapshot frame, int i, double x0, double y0, double zoom) {
+        if (this.isVisible(frame.getXMin(i), frame.getXMax(i),
+                frame.getYMin(i), frame.getYMax(i), x0, y0, zoom)) {
+            double size = zoom * Math.max(frame.getXMax(i) - frame.getXMin(i),
+                    frame.getYMax(i) - frame.getYMin(i));
+            if (size < DOT_SIZE) {
+                this.drawMachineAsDot(frame, i, x0, y0, zoom);
+            } else if (size < BOX_SIZE) {
+                this.drawMachineAsBox(frame, i, x0, y0, zoom);
+            } else {
+                this.drawMachine(frame, i, x0, y0, zoom, size >= LABEL_SIZE);
+            }
+        }
+    }
+
+    /* Whether the box given in world coordinates intersects the panel.
+     The margin keeps the score, written above the machine. */
+    private boolean isVisible(double xMin, double xMax, double yMin, double yMax,
+            double x0, double y0, double zoom) {
+        double left = zoom * xMin + x0;
+        double right = zoom * xMax + x0;
+        double bottom = panelHeight - (zoom * yMin + y0);
+        double top = panelHeight - (zoom * yMax + y0);
+        return right >= -MARGIN && left <= panelWidth + MARGIN
+                && bottom >= -MARGIN && top <= panelHeight + MARGIN;
+    }
+
+    public void drawBlock(FrameSnapshot frame, int j, double x0, double y0, double zoom) {
+
+        /* The coordinates of the 4 points (A, B, C, D) are computed when needed. */
+        double s = Math.sin(frame.getBlockAngle(j));
+        double c = Math.cos(frame.getBlockAngle(j));
+        double h = frame.getBlockHeight(j) / 2;
+        double w = frame.getBlockWidth(j) / 2;
+        double x = frame.getBlockX(j);
+        double y = frame.getBlockY(j);
+
+        /* Coordinates in the real world. */
+        double ax = -h * s + w * c + x;
+        double ay = h * c + w * s + y;
+        double bx = -h * s - w * c + x;
+        double by = h * c - w * s + y;
+        double cx = -w * c + h * s + x;
+        double cy = -w * s - h * c + y;
+        double dx = h * s + w * c + x;
+        double dy = -h * c + w * s + y;
+
+        /* Tables of the coordinates converted into panel world. */
+        int tabX[] = {(int) (zoom * ax + x0),
+            (int) (zoom * bx + x0),
+            (int) (zoom * cx + x0),
+            (int) (zoom * dx + x0)};
+        int tabY[] = {(int) (panelHeight - (zoom * ay + y0)),
+            (int) (panelHeight - (zoom * by + y0)),
+            (int) (panelHeight - (zoom * cy + y0)),
+            (int) (panelHeight - (zoom * dy + y0))};
+
+        g.setColor(Color.BLACK);
+        g.fillPolygon(tabX, tabY, 4);
+
+        g.setColor(Color.WHITE);
+        g.drawPolygon(tabX, tabY, 4);
+    }
+
+    public void drawMachineAsDot(FrameSnapshot frame, int i, double x0, double y0, double zoom) {
+        int xDisplay = (int) (zoom * (frame.getXMin(i) + frame.getXMax(i)) / 2 + x0);
+        int yDisplay = (int) (panelHeight - (zoom * (frame.getYMin(i) + frame.getYMax(i)) / 2 + y0));
+        g.setColor(Color.RED);
+        g.fillRect(xDisplay - 1, yDisplay - 1, 2, 2);
+    }
+
+    public void drawMachineAsBox(FrameSnapshot frame, int i, double x0, double y0, double zoom) {
+        int xDisplay = (int) (zoom * frame.getXMin(i) + x0);
+        int yDisplay = (int) (panelHeight - (zoom * frame.getYMax(i) + y0));
+        int dx = (int) (zoom * (frame.getXMax(i) - frame.getXMin(i)));
+        int dy = (int) (zoom * (frame.getYMax(i) - frame.getYMin(i)));
+        g.setColor(Color.RED);
+        g.fillRect(xDisplay, yDisplay, dx, dy);
+        g.setColor(Color.BLUE);
+        g.drawRect(xDisplay, yDisplay, dx, dy);
+    }
+
+    public void drawMachine(FrameSnapshot frame, int i, double x0, double y0, double zoom,
+            boolean withScore) {
+
+        for (int k = frame.getFirstPoint(i); k < frame.getFirstPoint(i + 1); k++) {
+            this.drawPoint(frame, k, x0, y0, zoom);
+        }
+        for (int k = frame.getFirstSpring(i); k < frame.getFirstSpring(i + 1); k++) {
+            this.drawSpring(frame, k, x0, y0, zoom);
+        }
+
+        if (!withScore) {
+            return;
+        }
+
+        // Display score with four digits after decimal point
+        int xDisplay = (int) (zoom * frame.getXText(i) + x0);
+        int yDisplay = (int) (panelHeight - (zoom * frame.getYText(i) + y0) - 2 * zoom);
+        g.setColor(Color.black);
+        String text = "" + frame.getScore(i);
+        text = text.substring(0, Math.min(6, text.length()));
+        g.drawString(text, xDisplay, yDisplay);
+    }
+
+    public void drawPoint(FrameSnapshot frame, int k, double x0, double y0, double zoom) {
+
+        double radius = frame.getPointRadius(k);
+        int xDisplay = (int) (zoom * frame.getPointX(k) + x0 - zoom * radius);
+        int yDisplay = (int) (panelHeight - (zoom * frame.getPointY(k) + y0) - zoom * radius);
+        int dx = (int) (zoom * radius * 2);
+        int dy = (int) (zoom * radius * 2);
+
+        if (frame.isPointColliding(k)) {
+            g.setColor(Color.ORANGE);
+        } else {
+            g.setColor(Color.RED);
+        }
+        g.fillOval(xDisplay, yDisplay, dx, dy);
+        g.setColor(Color.BLACK);
+        g.drawOval(xDisplay, yDisplay, dx, dy);
+    }
+
+    public void drawSpring(FrameSnapshot frame, int k, double x0, double y0, double zoom) {
+
+        g.setColor(Color.BLUE);
+
+        int xDisplay0 = (int) (zoom * frame.getSpringX0(k) + x0);
+        int yDisplay0 = (int) (panelHeight - (zoom * frame.getSpringY0(k) + y0));
+        int xDisplay1 = (int) (zoom * frame.getSpringX1(k) + x0);
+        int yDisplay1 = (int) (panelHeight - (zoom * frame.getSpringY1(k) + y0));
+
+        g.drawLine(xDisplay0, yDisplay0, xDisplay1, yDisplay1);
+    }
+}
@@ -0,0 +1,27 @@
+/* Semi-implicit (symplectic) Euler: the speeds are updated with the forces
+ at the current positions, then the points move with the new speeds.
+ This is the cheapest integrator: one evaluation of the forces per step.
+ */
+public class SymplecticEulerIntegrator implements Integrator {
+
+    @Override
+    public void computeSpeeds(Machine m, double dt) {
+        m.computeForces(dt, true);
+        m.updateSpeeds(dt);
+    }
+
+    @Override
+    public void movePoints(Machine m, double dt) {
+        m.move(dt);
+    }
+
+    @Override
+    public void endStep(Machine m, double dt) {
+        // Nothing to do once the points have moved.
+    }
+
+    @Override
+    public Integrator forWorld(World w) {
+        return this;
+    }
+}
@@ -17,6 +17,9 @@ public class Toolbar extends JPanel {
     private JButton buttonBreed;
     private JButton buttonSort;
     private JButton buttonKillHalf;
+    private JButton buttonSlower;
+    private JButton buttonFaster;
+    private JButton buttonSave;
 
     private GraphicPanel panel;
 
@@ -87,6 +90,30 @@ public class Toolbar extends JPanel {
             }
         });
         this.add(this.buttonMutate);
+
+        this.buttonSlower = new JButton("Slower");
+        this.buttonSlower.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                panel.multiplySpeed(0.5);
+            }
+        });
+        this.add(this.buttonSlower);
+
+        this.buttonFaster = new JButton("Faster");
+        this.buttonFaster.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                panel.multiplySpeed(2);
+            }
+        });
+        this.add(this.buttonFaster);
+
+        this.buttonSave = new JButton("Save");
+        this.buttonSave.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                panel.saveCheckpoint();
+            }
+        });
+        this.add(this.buttonSave);
     }
 
     public void setKeyListener(KeyboardListener k) {
@@ -98,5 +125,8 @@ public class Toolbar extends JPanel {
         this.buttonBreed.addKeyListener(k);
         this.buttonSort.addKeyListener(k);
         this.buttonKillHalf.addKeyListener(k);
+        this.buttonSlower.addKeyListener(k);
+        this.buttonFaster.addKeyListener(k);
+        this.buttonSave.addKeyListener(k);
     }
 }
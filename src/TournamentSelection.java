@@ -0,0 +1,69 @@
+/* Tournament: half of the population is chosen by tournaments, each one won by
+ the best of tournamentSize machines drawn at random. The best machine always
+ survives. A machine that wins several tournaments is cloned. The survivors are
+ then bred and mutated, as with the truncation.
+ */
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class TournamentSelection implements Selection {
+
+    private int tournamentSize;
+
+    public TournamentSelection() {
+        this(2);
+    }
+
+    public TournamentSelection(int tournamentSize) {
+        this.setTournamentSize(tournamentSize);
+    }
+
+    public void setTournamentSize(int n) {
+        if (n > 0) {
+            this.tournamentSize = n;
+        }
+    }
+
+    public int getTournamentSize() {
+        return this.tournamentSize;
+    }
+
+    @Override
+    public Machine nextGeneration(World world) {
+        int n = world.getNbMachines();
+        if (n == 0) {
+            return null;
+        }
+        double[] scores = world.computeScores();
+        int bestIndex = world.getBestIndex();
+        Machine best = world.getMachine(bestIndex);
+
+        int nbSurvivors = Math.max(1, n / 2);
+        boolean[] isChosen = new boolean[n];
+        ArrayList<Machine> survivors = new ArrayList<>(2 * nbSurvivors);
+        survivors.add(best);
+        isChosen[bestIndex] = true;
+        Random r = ThreadLocalRandom.current();
+        while (survivors.size() < nbSurvivors) {
+            int winner = r.nextInt(n);
+            for (int t = 1; t < this.tournamentSize; t++) {
+                int candidate = r.nextInt(n);
+                if (scores[candidate] > scores[winner]) {
+                    winner = candidate;
+                }
+            }
+            if (isChosen[winner]) {
+                survivors.add(world.getMachine(winner).clone());
+            } else {
+                survivors.add(world.getMachine(winner));
+                isChosen[winner] = true;
+            }
+        }
+
+        world.setMachines(survivors);
+        world.breed();
+        world.mutate();
+        return best;
+    }
+}
@@ -0,0 +1,21 @@
+/* Truncation: the best half survives (found by quickselect, in linear time),
+ each survivor gets a clone, and all the machines are mutated.
+ Same result as sortMachines, killHalf, breed and mutate, except for the order
+ of the machines.
+ */
+public class TruncationSelection implements Selection {
+
+    @Override
+    public Machine nextGeneration(World world) {
+        if (world.getNbMachines() == 0) {
+            return null;
+        }
+        world.computeScores();
+        int[] survivors = world.selectBest(Math.max(1, world.getNbMachines() / 2));
+        Machine best = world.getMachine(world.getBestIndex());
+        world.keepOnly(survivors);
+        world.breed();
+        world.mutate();
+        return best;
+    }
+}
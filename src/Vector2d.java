@@ -17,6 +17,16 @@ public class Vector2d{
 		return new Vector2d(this.x, this.y);
 	}
 	
+	/* In-place setters, used on the physics path to avoid allocating new vectors. */
+	public void set(double x, double y){
+		this.x = x;
+		this.y = y;
+	}
+	public void set(Vector2d other){
+		this.x = other.x;
+		this.y = other.y;
+	}
+
 	public void add(Vector2d other){
 		this.x += other.x;
 		this.y += other.y;
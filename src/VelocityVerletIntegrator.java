@@ -0,0 +1,36 @@
+/* Velocity Verlet: half a kick with the forces at the start of the step,
+ the move, then half a kick with the forces at the end of the step.
+
+ The positions are the same as with the symplectic Euler integrator when there
+ is no damping, but the speeds are known at the end of each step instead of
+ half a step before, which keeps the damping of the springs and the collisions
+ consistent with the positions. The forces are evaluated twice per step,
+ because the world may change the speeds between two steps (collisions, mutations).
+ */
+public class VelocityVerletIntegrator implements Integrator {
+
+    @Override
+    public void computeSpeeds(Machine m, double dt) {
+        m.computeForces(dt, true);
+        m.updateSpeeds(dt / 2);
+    }
+
+    @Override
+    public void movePoints(Machine m, double dt) {
+        m.move(dt);
+        this.endStep(m, dt);
+    }
+
+    @Override
+    public void endStep(Machine m, double dt) {
+        /* The previous lengths are kept: they are those of the start of the step,
+         and will be replaced by the lengths of the end of the step at the next call to computeSpeeds. */
+        m.computeForces(dt, false);
+        m.updateSpeeds(dt / 2);
+    }
+
+    @Override
+    public Integrator forWorld(World w) {
+        return this;
+    }
+}
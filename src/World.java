@@ -1,13 +1,21 @@
 /* This class brings together all the machines and all the physical elements that will
  interact with the machines. */
-import java.awt.Graphics;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class World {
 
     private ArrayList<Machine> machineList;
     private ArrayList<Block> blockList;
+    private BlockGrid blockGrid; // Built once from the static blocks, null until needed.
 
     private static int NB_MACHINES_MAX = 1000;
 
@@ -19,11 +27,52 @@ public class World {
     // Air friction
     private double dampingFactor = 0.999;
 
-    private ArrayList<Collision> collisionList;
+    private Integrator integrator; // Given to all the machines; null when each one keeps its own.
+
+    /* Continuous collision detection: the next collision of each point, ordered by date.
+     The points are numbered in the order of the machines; for each one we know
+     the date it has reached in the current timestep, and a stamp that
+     invalidates its older collisions in the queue. */
+    private boolean continuousCollisions;
+    private PriorityQueue<Collision> collisionQueue;
+    private CollisionPool collisionPool;
+    private ArrayList<Point> collidingPoints;
+    private int[] firstPointIndex; // Index of the first point of each machine
+    private double[] pointDates;
+    private int[] pointStamps;
+    private int[] pointNbCollisions;
+    private static int NB_COLLISIONS_MAX = 16; // Per point and per timestep.
+
+    // Collisions between the points of a same machine
+    private boolean selfCollisions;
+    // Arena mode: collisions between machines; null when the machines overlap freely.
+    private SweepAndPrune sweepAndPrune;
+
+    private static final int STEP_WHOLE = 0;
+    private static final int STEP_SPEEDS = 1;
+    private static final int STEP_MOVES = 2;
 
     private double date;
 
+    /* Optional structure-of-arrays backend: when active, the points of all machines
+     live in this store. The store is rebuilt when the population changes. */
+    private PointStore store;
+    private boolean storeIsValid;
+
+    /* Scores of the machines, computed once per sort or selection, the index of the best
+     one, found at the same time, and buffers for the sort itself. */
+    private double[] scores;
+    private int bestIndex;
+    private int[] sortOrder, sortBuffer;
+
+    /* Threads used to evolve the machines in parallel; null when evolving serially.
+     A copy made by createEmptyCopy borrows the threads of its world. */
+    private ExecutorService executor;
+    private boolean executorIsBorrowed;
+    private ArrayList<EvolveTask> evolveTasks;
+
     public World(int nbMachines) {
+        this.machineList = new ArrayList<>();
         for (int i = 0; i < nbMachines; i++) {
             this.addMachine(new Machine());
         }
@@ -66,7 +115,12 @@ public class World {
             this.machineList.get(i).setGravity(this.gx, this.gy);
         }
 
-        this.collisionList = new ArrayList<>();
+        this.integrator = null;
+        this.continuousCollisions = false;
+        this.selfCollisions = false;
+        this.collisionQueue = new PriorityQueue<>();
+        this.collisionPool = new CollisionPool();
+        this.collidingPoints = new ArrayList<>();
         this.date = 0;
     }
 
@@ -89,111 +143,450 @@ public class World {
             this.machineList = new ArrayList<>();
         }
         if (machineList.size() < NB_MACHINES_MAX) {
+            if (this.integrator != null) {
+                m.setIntegrator(this.integrator);
+            }
             this.machineList.add(m);
+            this.storeIsValid = false;
+        }
+    }
+
+    /**
+     * Put a new machine in place of the machine of the given rank, e.g. a
+     * machine that migrates from another world.
+     *
+     * @param index
+     * @param m
+     */
+    public void replaceMachine(int index, Machine m) {
+        if (this.integrator != null) {
+            m.setIntegrator(this.integrator);
+        }
+        m.setGravity(this.gravityActive ? this.gx : 0, this.gravityActive ? this.gy : 0);
+        this.machineList.set(index, m);
+        this.storeIsValid = false;
+    }
+
+    /**
+     * A world without machines, with the same blocks, gravity, collisions,
+     * integrator and threads as this one, where some machines can be evolved
+     * apart from the others. The copy borrows the threads of this world, and
+     * can be kept and emptied again with updateCopy.
+     */
+    World createEmptyCopy() {
+        World res = new World(0);
+        this.updateCopy(res);
+        return res;
+    }
+
+    /* Remove the machines of a copy made by createEmptyCopy, and give it the current
+     blocks, settings, threads and date of this world. The grid of the blocks and
+     the tasks of the threads are only built again when they have changed. */
+    void updateCopy(World res) {
+        res.machineList.clear();
+        res.storeIsValid = false;
+        if (!res.blockList.equals(this.blockList)) {
+            res.blockList = new ArrayList<>(this.blockList);
+            res.blockGrid = null;
+        }
+        res.setGravity(this.gx, this.gy, this.gravityActive);
+        res.dampingFactor = this.dampingFactor;
+        res.continuousCollisions = this.continuousCollisions;
+        res.selfCollisions = this.selfCollisions;
+        res.integrator = this.integrator == null ? null : this.integrator.forWorld(res);
+        res.setStoreMode(this.isStoreMode());
+        if (res.executor != this.executor) {
+            res.shutdown();
+            if (this.executor != null) {
+                res.executor = this.executor;
+                res.executorIsBorrowed = true;
+                res.evolveTasks = new ArrayList<>();
+                for (int k = 0; k < this.evolveTasks.size(); k++) {
+                    res.evolveTasks.add(res.new EvolveTask());
+                }
+            }
+        }
+        res.date = this.date;
+    }
+
+    /**
+     * Choose how all the machines, and the ones added later, are advanced in
+     * time. The offspring of a machine inherit its integrator.
+     *
+     * @param i
+     */
+    public void setIntegrator(Integrator i) {
+        this.integrator = i;
+        for (Machine m : this.machineList) {
+            m.setIntegrator(i);
+        }
+    }
+
+    /* Null when each machine keeps its own integrator. */
+    public Integrator getIntegrator() {
+        return this.integrator;
+    }
+
+    public int getNbMachines() {
+        return this.machineList.size();
+    }
+
+    public Machine getMachine(int index) {
+        return this.machineList.get(index);
+    }
+
+    public int getNbBlocks() {
+        return this.blockList.size();
+    }
+
+    public Block getBlock(int index) {
+        return this.blockList.get(index);
+    }
+
+    public void addBlock(Block b) {
+        if (this.blockList == null) {
+            this.blockList = new ArrayList<>();
+        }
+        this.blockList.add(b);
+        this.blockGrid = null;
+    }
+
+    /* Used when the blocks are read from a checkpoint. */
+    void clearBlocks() {
+        this.blockList.clear();
+        this.blockGrid = null;
+    }
+
+    /* The margin of the grid is the largest radius of the current points;
+     larger points added later are tested against all the blocks. */
+    private void buildBlockGrid() {
+        double maxRadius = 0;
+        for (int i = 0; i < this.machineList.size(); i++) {
+            Machine m = this.machineList.get(i);
+            for (int j = 0; j < m.getNbPoints(); j++) {
+                maxRadius = Math.max(maxRadius, m.getPoint(j).getRadius());
+            }
+        }
+        this.blockGrid = new BlockGrid(this.blockList, maxRadius);
+    }
+
+    /* The grid of the blocks, built when first needed; null when there are no blocks. */
+    BlockGrid getBlockGrid() {
+        if (this.blockGrid == null && this.blockList != null) {
+            this.buildBlockGrid();
+        }
+        return this.blockGrid;
+    }
+
+    /**
+     * Choose whether the points of all machines are stored in flat arrays
+     * owned by the world (true), or in their own objects (false).
+     *
+     * @param param
+     */
+    public void setStoreMode(boolean param) {
+        if (param) {
+            if (this.store == null) {
+                this.store = new PointStore();
+                this.storeIsValid = false;
+            }
+        } else if (this.store != null) {
+            for (Machine m : this.machineList) {
+                m.detach();
+            }
+            this.store = null;
+        }
+    }
+
+    public boolean isStoreMode() {
+        return this.store != null;
+    }
+
+    /* Attach all current machines to the store, in consecutive ranges. */
+    private void rebuildStore() {
+        for (Machine m : this.machineList) {
+            m.detach();
         }
+        this.store.clear();
+        for (Machine m : this.machineList) {
+            m.attach(this.store);
+        }
+        this.storeIsValid = true;
     }
 
     public void evolve(double dt) {
 
         // System.out.println("World.evolve: time = " + this.date);
-        // Time remaining before the end of the timestep.
-        double remainingTime = dt;
-
         double endOfTimestep = this.date + dt;
 
         if (this.machineList == null) {
             return;
         }
 
-        boolean loop = true;
+        if (this.store != null && !this.storeIsValid) {
+            this.rebuildStore();
+        }
+        if (this.blockGrid == null && this.blockList != null) {
+            this.buildBlockGrid();
+        }
+
+        if (!this.continuousCollisions) {
+            /* First version of the physics engine, where the points only collide on the blocks,
+             and the order in which the collisions happen is not properly dealt with. */
+            this.evolveMachines(STEP_WHOLE, dt);
+        } else {
+            /* The speeds are computed first; the points are then moved along their speed,
+             stopping at each collision in the order of their dates. */
+            this.evolveMachines(STEP_SPEEDS, dt);
 
-        /* Find all the collisions that might happen in the future.
-         On re-loop, re-computing the list of next collisions is mandatory
-         because the collision we just solved may have added new collisions
-         or cancelled existing ones.
-         */
-        do {
+            /* Find the first collision of each point before the end of the timestep. */
             this.findCollisions(this.date, endOfTimestep);
-            // System.out.println("nb coll: " + this.collisionList.size());
 
             /* When at least one collision happens at the appropriate time,
-             it must be solved (the movements of the two objects are modified),
-             and then we must re-check for collisions. */
-            if (this.collisionList.size() > 0) {
-                Collision coll = this.collisionList.get(0);
-
-                coll.solve(this); // The world evolves to that instant, then the speeds are modified.
+             it must be solved (the movement of the point is modified),
+             and then only the next collision of that point must be computed again;
+             the other collisions in the queue are not affected. */
+            while (!this.collisionQueue.isEmpty()) {
+                Collision coll = this.collisionQueue.poll();
+                int index = coll.getIndex();
+                if (coll.getStamp() != this.pointStamps[index]) {
+                    // This collision was invalidated by another one.
+                    this.collisionPool.release(coll);
+                    continue;
+                }
+                coll.solve();
+                this.collisionPool.release(coll);
+                this.pointDates[index] = coll.getDate();
+                this.pointStamps[index]++;
+                this.pointNbCollisions[index]++;
+                if (this.pointNbCollisions[index] < NB_COLLISIONS_MAX) {
+                    this.findCollision(index, endOfTimestep);
+                }
             }
-            // At this point, the other collisions in the list may have been invalidated by the first one.
-        } while (this.collisionList != null && this.collisionList.size() > 0);
 
-        /* At this point, we know that no collision will happen before the beginning of the next timestep.
-         We will then reach the end of the current timestep. */
-        /* First version of the physics engine, where the points only collide on the blocks,
-         and the order in which the collisions happen is not properly dealt with. */
-        for (int i = 0; i < this.machineList.size(); i++) {
+            /* At this point, we know that no collision will happen before the end of the timestep. */
+            this.evolveMachines(STEP_MOVES, dt);
+        }
+
+        /* In the arena, the machines push each other once they have moved. */
+        if (this.sweepAndPrune != null) {
+            this.sweepAndPrune.update(this.machineList);
+            this.sweepAndPrune.collide();
+        }
+
+        this.date = endOfTimestep;
+    }
+
+    /* Run the given step on all the machines, either serially or on the threads. */
+    private void evolveMachines(int step, double dt) {
+        if (this.executor == null) {
+            this.evolveMachines(step, 0, this.machineList.size(), dt);
+        } else {
+            this.evolveMachinesInParallel(step, dt);
+        }
+    }
+
+    /* Collide, evolve and dampen the machines of indices first to last - 1.
+     The machines do not interact with each other, so any range can be evolved
+     independently of the others.
+     STEP_WHOLE does a complete timestep; STEP_SPEEDS and STEP_MOVES are the
+     two halves of a timestep, with the continuous collisions solved in between. */
+    private void evolveMachines(int step, int first, int last, double dt) {
+        for (int i = first; i < last; i++) {
             Machine m = this.machineList.get(i);
-            m.razCollisions();
-            // m.selfCollide();
-            if (this.blockList != null) {
-                for (int j = 0; j < this.blockList.size(); j++) {
-                    this.blockList.get(j).collide(m, dt);
+            if (step != STEP_MOVES) {
+                m.razCollisions();
+                if (this.blockGrid != null) {
+                    this.blockGrid.collide(m, dt);
+                }
+                m.computeSpeeds(dt);
+                if (this.selfCollisions) {
+                    m.selfCollide(dt);
+                }
+            }
+            if (step == STEP_WHOLE) {
+                m.movePoints(dt);
+            } else if (step == STEP_MOVES) {
+                /* Each point moves from the date of its last collision to the end of the timestep. */
+                int index = this.firstPointIndex[i];
+                for (int j = 0; j < m.getNbPoints(); j++) {
+                    m.getPoint(j).move(this.date + dt - this.pointDates[index + j]);
                 }
+                m.endStep(dt);
+            }
+
+            if (step != STEP_SPEEDS) {
+                // Friction
+                m.dampenSpeed(this.dampingFactor);
             }
-            m.evolve(dt);
         }
+    }
 
-        // Friction
-        for (int i = 0; i < this.machineList.size(); i++) {
-            Machine m = this.machineList.get(i);
-            m.dampenSpeed(this.dampingFactor);
+    /* Split the population in one range per thread, and wait for all ranges
+     to be evolved before the end of the timestep. */
+    private void evolveMachinesInParallel(int step, double dt) {
+        int nbMachines = this.machineList.size();
+        int nbTasks = this.evolveTasks.size();
+        for (int k = 0; k < nbTasks; k++) {
+            EvolveTask task = this.evolveTasks.get(k);
+            task.first = (int) ((long) nbMachines * k / nbTasks);
+            task.last = (int) ((long) nbMachines * (k + 1) / nbTasks);
+            task.step = step;
+            task.dt = dt;
+        }
+        try {
+            for (Future<Void> f : this.executor.invokeAll(this.evolveTasks)) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
         }
     }
 
-    public void paint(Graphics g, double panelHeight,
-            double x0, double y0, double zoom) {
-        this.paint(g, panelHeight,
-                x0, y0, zoom,
-                true, 0);
+    private class EvolveTask implements Callable<Void> {
+
+        private int first, last;
+        private int step;
+        private double dt;
+
+        @Override
+        public Void call() {
+            evolveMachines(this.step, this.first, this.last, this.dt);
+            return null;
+        }
     }
 
-    public void paint(Graphics g, double panelHeight,
-            double x0, double y0, double zoom,
-            boolean superposed, int nbMachinesPerColumn) {
+    /**
+     * Choose whether the points are moved with continuous collision detection
+     * (true): each point stops at the exact date it touches a block, so that
+     * fast points cannot go through thin blocks. When false, the collisions
+     * are only checked once per timestep.
+     *
+     * @param param
+     */
+    public void setContinuousCollisions(boolean param) {
+        this.continuousCollisions = param;
+    }
 
-        double dx = 0, dy = 0, zoomFact = 1;
+    public boolean isContinuousCollisions() {
+        return this.continuousCollisions;
+    }
 
-        try {
-            for (int i = 0; i < this.machineList.size(); i++) {
+    /**
+     * Choose whether the points of a machine collide with each other.
+     *
+     * @param param
+     */
+    public void setSelfCollisions(boolean param) {
+        this.selfCollisions = param;
+    }
 
-                for (int j = 0; j < this.blockList.size(); j++) {
+    public boolean isSelfCollisions() {
+        return this.selfCollisions;
+    }
 
-                    if (superposed) {
-                        /* Display all machines on the same referential. */
-                        dx = 0;
-                        dy = 0;
-                        zoomFact = 1;
-                    } else {
-                        /* Display each machine in a dedicated location. */
-                        int numLine = i / nbMachinesPerColumn;
-                        int numCol = i - numLine * nbMachinesPerColumn;
-                        dx = this.getWidth() * numCol * zoom;
-                        dy = -this.getHeight() * numLine * zoom;
-                        zoomFact = 1;
-                    }
+    /**
+     * Choose whether the machines share the arena and physically push each
+     * other (true), or overlap freely (false). When the arena opens, the
+     * machines are spread over it, since they are all created at the same
+     * place.
+     *
+     * @param param
+     */
+    public void setArenaMode(boolean param) {
+        if (param && this.sweepAndPrune == null) {
+            this.sweepAndPrune = new SweepAndPrune();
+            this.spreadMachines();
+        } else if (!param) {
+            this.sweepAndPrune = null;
+        }
+    }
+
+    public boolean isArenaMode() {
+        return this.sweepAndPrune != null;
+    }
+
+    /* Move the machines side by side between the side walls, each one as wide as
+     its box, in rows from the floor upwards; a row is as high as its highest machine.
+     The boxes are separated by a gap, so that no two of them overlap. */
+    private void spreadMachines() {
+        double innerWidth = this.getWidth() - 2; // The side walls are 2 thick.
+        double gap = 0.5;
+        double x = -innerWidth / 2;
+        double y = 0;
+        double rowHeight = 0;
+        for (Machine m : this.machineList) {
+            if (m.getNbPoints() == 0) {
+                continue;
+            }
+            double r = 0;
+            for (int j = 0; j < m.getNbPoints(); j++) {
+                r = Math.max(r, m.getPoint(j).getRadius());
+            }
+            double width = m.getXMax() - m.getXMin() + 2 * r + gap;
+            double height = m.getYMax() - m.getYMin() + 2 * r + gap;
+            if (x + width > innerWidth / 2 && rowHeight > 0) {
+                // Next row.
+                x = -innerWidth / 2;
+                y += rowHeight;
+                rowHeight = 0;
+            }
+            double dx = x + r - m.getXMin();
+            double dy = y + r - m.getYMin();
+            for (int j = 0; j < m.getNbPoints(); j++) {
+                m.getPoint(j).translate(dx, dy);
+            }
+            x += width;
+            rowHeight = Math.max(rowHeight, height);
+        }
+    }
 
-                    this.blockList.get(j).display(g,
-                            x0 + dx, y0 + dy,
-                            zoom * zoomFact,
-                            (int) panelHeight);
-                    this.machineList.get(i).display(g,
-                            x0 + dx, y0 + dy,
-                            zoom * zoomFact,
-                            (int) panelHeight);
+    /**
+     * Choose how many threads evolve the machines. With one thread, the
+     * machines are evolved by the caller of evolve(); the results are the same
+     * for any number of threads.
+     *
+     * @param nbThreads
+     */
+    public void setNbThreads(int nbThreads) {
+        this.shutdown();
+        if (nbThreads > 1) {
+            this.executor = Executors.newFixedThreadPool(nbThreads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "World.evolve");
+                    t.setDaemon(true);
+                    return t;
                 }
+            });
+            this.evolveTasks = new ArrayList<>();
+            for (int k = 0; k < nbThreads; k++) {
+                this.evolveTasks.add(new EvolveTask());
             }
-        } catch (IndexOutOfBoundsException e) {
+        }
+    }
 
+    public int getNbThreads() {
+        if (this.executor == null) {
+            return 1;
+        }
+        return this.evolveTasks.size();
+    }
+
+    /**
+     * Stop the threads used by the parallel evolution, if any. Borrowed
+     * threads are only given back.
+     */
+    public void shutdown() {
+        if (this.executor != null) {
+            if (!this.executorIsBorrowed) {
+                this.executor.shutdown();
+            }
+            this.executor = null;
+            this.executorIsBorrowed = false;
+            this.evolveTasks = null;
         }
     }
 
@@ -238,14 +631,110 @@ public class World {
         return this.date;
     }
 
+    void setDate(double newDate) {
+        this.date = newDate;
+    }
+
+    public double getGx() {
+        return this.gx;
+    }
+
+    public double getGy() {
+        return this.gy;
+    }
+
+    public boolean isGravityActive() {
+        return this.gravityActive;
+    }
+
+    /**
+     * Set the gravity of the world, without changing the gravity of the
+     * machines.
+     *
+     * @param gx
+     * @param gy
+     * @param active
+     */
+    void setGravity(double gx, double gy, boolean active) {
+        this.gx = gx;
+        this.gy = gy;
+        this.gravityActive = active;
+    }
+
 
     /* Find all the collisions that might happen within a period of time.
-     At the end of this function, the list starts with the first
-     of the collisions that will happen between the two specified instants. */
+     At the end of this function, the queue contains the first collision
+     of each point that will happen between the two specified instants,
+     and the head of the queue is the first of all these collisions. */
     private void findCollisions(double startDate, double endDate) {
-        this.collisionList = new ArrayList<Collision>();
+        this.collisionQueue.clear();
 
-        // TODO
+        /* Each point gets an index, and starts its movement at startDate. */
+        int nbMachines = this.machineList.size();
+        if (this.firstPointIndex == null || this.firstPointIndex.length < nbMachines) {
+            this.firstPointIndex = new int[nbMachines];
+        }
+        this.collidingPoints.clear();
+        for (int i = 0; i < nbMachines; i++) {
+            Machine m = this.machineList.get(i);
+            this.firstPointIndex[i] = this.collidingPoints.size();
+            for (int j = 0; j < m.getNbPoints(); j++) {
+                this.collidingPoints.add(m.getPoint(j));
+            }
+        }
+        int nbPoints = this.collidingPoints.size();
+        if (this.pointDates == null || this.pointDates.length < nbPoints) {
+            this.pointDates = new double[nbPoints];
+            this.pointStamps = new int[nbPoints];
+            this.pointNbCollisions = new int[nbPoints];
+        }
+        for (int i = 0; i < nbPoints; i++) {
+            this.pointDates[i] = startDate;
+            this.pointStamps[i] = 0;
+            this.pointNbCollisions[i] = 0;
+            this.findCollision(i, endDate);
+        }
+    }
+
+    /* Add to the queue the first collision of the point of the given index
+     between its current date and endDate, if any.
+     Only the blocks located in the cells crossed by the point are tested. */
+    private void findCollision(int index, double endDate) {
+        if (this.blockGrid == null || this.blockGrid.isEmpty()) {
+            return;
+        }
+        Point p = this.collidingPoints.get(index);
+        double dt = endDate - this.pointDates[index];
+        double r = p.getRadius();
+        double xEnd = p.getX() + dt * p.getSpeedX();
+        double yEnd = p.getY() + dt * p.getSpeedY();
+        int col0 = this.blockGrid.getCol(Math.min(p.getX(), xEnd) - r);
+        int col1 = this.blockGrid.getCol(Math.max(p.getX(), xEnd) + r);
+        int line0 = this.blockGrid.getLine(Math.min(p.getY(), yEnd) - r);
+        int line1 = this.blockGrid.getLine(Math.max(p.getY(), yEnd) + r);
+
+        Collision first = null;
+        for (int line = line0; line <= line1; line++) {
+            for (int col = col0; col <= col1; col++) {
+                int cell = this.blockGrid.getCell(col, line);
+                for (int k = 0; k < this.blockGrid.getNbBlocks(cell); k++) {
+                    Collision coll = this.collisionPool.obtain(p, this.blockGrid.getBlock(cell, k),
+                            this.pointDates[index], endDate);
+                    if (coll.getDate() >= 0 && (first == null || coll.happensSoonerThan(first))) {
+                        if (first != null) {
+                            this.collisionPool.release(first);
+                        }
+                        first = coll;
+                    } else {
+                        this.collisionPool.release(coll);
+                    }
+                }
+            }
+        }
+        if (first != null) {
+            first.setStamp(index, this.pointStamps[index]);
+            this.collisionQueue.add(first);
+        }
     }
 
     /**
@@ -269,6 +758,7 @@ public class World {
 //            System.out.println("i = " + i);
             i++;
         }
+        this.storeIsValid = false;
     }
 
     /**
@@ -285,17 +775,194 @@ public class World {
         if (machineList.size() > NB_MACHINES_MAX) {
             machineList = new ArrayList(machineList.subList(0, NB_MACHINES_MAX));
         }
+        this.storeIsValid = false;
     }
 
     /**
-     * Sort the machines in an order defined by their score.
+     * Sort the machines in an order defined by their score, best first.
      *
+     * The score of each machine is computed only once into a primitive array,
+     * and the machines are then ordered by that array. A machine with an
+     * undefined (NaN) score is considered worse than all others.
      */
     public void sortMachines() {
-        try {
-            Collections.sort(machineList);
-        } catch (IllegalArgumentException e) {
-            System.out.println("sorting error");
+        int n = this.machineList.size();
+        this.computeScores();
+        this.resetOrder(n);
+        sortByDecreasingScore(this.scores, this.sortOrder, this.sortBuffer, n);
+
+        ArrayList<Machine> sortedList = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            sortedList.add(this.machineList.get(this.sortOrder[i]));
+        }
+        this.machineList = sortedList;
+    }
+
+    /* Snapshot of the score of each machine, at the same index as in machineList;
+     only the first getNbMachines() values are meaningful. The index of the best
+     machine is kept on the way. */
+    double[] computeScores() {
+        int n = this.machineList.size();
+        if (this.scores == null || this.scores.length < n) {
+            this.scores = new double[n];
+        }
+        this.bestIndex = 0;
+        for (int i = 0; i < n; i++) {
+            double score = this.machineList.get(i).getScore();
+            this.scores[i] = Double.isNaN(score) ? Double.NEGATIVE_INFINITY : score;
+            if (this.scores[i] > this.scores[this.bestIndex]) {
+                this.bestIndex = i;
+            }
+        }
+        return this.scores;
+    }
+
+    /* Index of the best machine when the scores were last computed. */
+    int getBestIndex() {
+        return this.bestIndex;
+    }
+
+    /**
+     * Find the k best machines, in linear time, without sorting, from the
+     * scores computed by the last call to computeScores().
+     *
+     * @param k
+     * @return their indices, in no particular order
+     */
+    int[] selectBest(int k) {
+        int n = this.machineList.size();
+        k = Math.max(0, Math.min(k, n));
+        this.resetOrder(n);
+        selectLargest(this.scores, this.sortOrder, n, k);
+        return Arrays.copyOf(this.sortOrder, k);
+    }
+
+    /**
+     * Find the k worst machines, in linear time, without sorting, from the
+     * scores computed by the last call to computeScores().
+     *
+     * @param k
+     * @return their indices, in no particular order
+     */
+    int[] selectWorst(int k) {
+        int n = this.machineList.size();
+        k = Math.max(0, Math.min(k, n));
+        this.resetOrder(n);
+        selectLargest(this.scores, this.sortOrder, n, n - k);
+        return Arrays.copyOfRange(this.sortOrder, n - k, n);
+    }
+
+    private void resetOrder(int n) {
+        if (this.sortOrder == null || this.sortOrder.length < n) {
+            this.sortOrder = new int[n];
+            this.sortBuffer = new int[n];
+        }
+        for (int i = 0; i < n; i++) {
+            this.sortOrder[i] = i;
+        }
+    }
+
+    /**
+     * Keep only the k best machines, in their current order.
+     *
+     * @param k
+     */
+    public void keepBest(int k) {
+        this.computeScores();
+        this.keepOnly(this.selectBest(k));
+    }
+
+    /* Keep only the machines of the given indices, in their current order. */
+    void keepOnly(int[] indices) {
+        boolean[] isKept = new boolean[this.machineList.size()];
+        for (int i : indices) {
+            isKept[i] = true;
+        }
+        ArrayList<Machine> kept = new ArrayList<>(indices.length);
+        for (int i = 0; i < isKept.length; i++) {
+            if (isKept[i]) {
+                kept.add(this.machineList.get(i));
+            }
+        }
+        this.machineList = kept;
+        this.storeIsValid = false;
+    }
+
+    /* Replace the whole population; the machines must already have the integrator
+     and the gravity of this world, e.g. machines of this world or their clones. */
+    void setMachines(ArrayList<Machine> list) {
+        this.machineList = list;
+        this.storeIsValid = false;
+    }
+
+    /* Quickselect with a three-way partition (many machines have the same score):
+     afterwards, the first k indices of order are those of the k largest keys,
+     in no particular order. Linear time on average. */
+    private static void selectLargest(double[] keys, int[] order, int n, int k) {
+        int left = 0;
+        int right = n - 1;
+        while (left < right) {
+            double pivot = keys[order[left + ThreadLocalRandom.current().nextInt(right - left + 1)]];
+            // [left, lt): larger than the pivot; [lt, i): equal; (gt, right]: smaller.
+            int lt = left;
+            int i = left;
+            int gt = right;
+            while (i <= gt) {
+                double key = keys[order[i]];
+                if (key > pivot) {
+                    swap(order, lt, i);
+                    lt++;
+                    i++;
+                } else if (key < pivot) {
+                    swap(order, i, gt);
+                    gt--;
+                } else {
+                    i++;
+                }
+            }
+            if (k < lt) {
+                right = lt - 1;
+            } else if (k > gt + 1) {
+                left = gt + 1;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void swap(int[] t, int i, int j) {
+        int tmp = t[i];
+        t[i] = t[j];
+        t[j] = tmp;
+    }
+
+    /* Stable bottom-up merge sort of the first n indices of order,
+     by decreasing value of the keys. */
+    private static void sortByDecreasingScore(double[] keys, int[] order, int[] buffer, int n) {
+        int[] src = order;
+        int[] dst = buffer;
+        for (int width = 1; width < n; width *= 2) {
+            for (int left = 0; left < n; left += 2 * width) {
+                int middle = Math.min(left + width, n);
+                int right = Math.min(left + 2 * width, n);
+                int i = left;
+                int j = middle;
+                for (int k = left; k < right; k++) {
+                    if (i < middle && (j >= right || keys[src[i]] >= keys[src[j]])) {
+                        dst[k] = src[i];
+                        i++;
+                    } else {
+                        dst[k] = src[j];
+                        j++;
+                    }
+                }
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        if (src != order) {
+            System.arraycopy(src, 0, order, 0, n);
         }
     }
 
@@ -305,9 +972,8 @@ public class World {
      */
     public void killHalf() {
         int oldSize = machineList.size();
-        for (int i = oldSize - 1; i >= oldSize / 2; i--) {
-            machineList.remove(i);
-        }
+        machineList.subList(oldSize / 2, oldSize).clear();
+        this.storeIsValid = false;
     }
 
     public void extendSprings(double dL) {
@@ -316,8 +982,9 @@ public class World {
         }
     }
 
+    /* The list is not reordered; the scores are computed once each. */
     Machine getBestMachine() {
-        sortMachines();
-        return machineList.get(0);
+        this.computeScores();
+        return machineList.get(this.bestIndex);
     }
 }
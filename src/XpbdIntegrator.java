@@ -0,0 +1,224 @@
+/* Extended position-based dynamics (XPBD).
+
+ Instead of turning the springs into forces, each step predicts the positions
+ with the current speeds (and gravity), then moves the predicted positions
+ to satisfy the constraints, in a fixed number of iterations:
+ - each spring is a compliant distance constraint |xb - xa| = l0,
+ whose compliance is the inverse of its strength;
+ - each point must stay out of the blocks (inequality constraint).
+ The speeds are then deduced from the displacement. The cost of a step is bounded
+ by the number of iterations, and the step is stable whatever dt is;
+ more iterations make the springs stiffer.
+
+ The damping of a spring is a damping of the constraint: the ratio damping / strength
+ is the same as the ratio between the viscous and elastic forces of Spring.applyForce
+ over one step.
+
+ The machine is attached to a store of its own when it is not already attached to one.
+ */
+public class XpbdIntegrator implements Integrator {
+
+    private World world; // Gives the grid of the blocks.
+    private int nbIterations;
+
+    /* Each thread uses its own arrays, so that the integrator can be shared by all the machines. */
+    private static final ThreadLocal<Workspace> WORKSPACE = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return new Workspace();
+        }
+    };
+
+    public XpbdIntegrator(World world) {
+        this(world, 10);
+    }
+
+    public XpbdIntegrator(World world, int nbIterations) {
+        this.world = world;
+        this.setNbIterations(nbIterations);
+    }
+
+    public int getNbIterations() {
+        return this.nbIterations;
+    }
+
+    public void setNbIterations(int n) {
+        this.nbIterations = Math.max(1, n);
+    }
+
+    @Override
+    public void computeSpeeds(Machine m, double dt) {
+        if (m.getStore() == null) {
+            m.attach(new PointStore(m.getNbPoints()));
+        }
+        PointStore s = m.getStore();
+        SpringKernel k = m.getSpringKernel();
+        int first = m.getFirstIndex();
+        int n = m.getNbPoints();
+        Workspace w = WORKSPACE.get();
+        w.ensureCapacity(n, k.nbSprings);
+
+        /* Prediction; gravity is a force, like in Machine.computeForces. */
+        for (int i = 0; i < n; i++) {
+            double mass = s.mass[i + first];
+            double invMass = mass > 0 ? 1 / mass : 0;
+            w.invMass[i] = invMass;
+            w.px[i] = s.x[i + first] + dt * (s.vx[i + first] + dt * m.getGx() * invMass);
+            w.py[i] = s.y[i + first] + dt * (s.vy[i + first] + dt * m.getGy() * invMass);
+        }
+        for (int j = 0; j < k.nbSprings; j++) {
+            double dx = s.x[k.end[j]] - s.x[k.start[j]];
+            double dy = s.y[k.end[j]] - s.y[k.start[j]];
+            k.length[j] = Math.sqrt(dx * dx + dy * dy);
+            w.lambda[j] = 0;
+        }
+
+        for (int iteration = 0; iteration < this.nbIterations; iteration++) {
+            this.solveSprings(w, s, k, first, dt);
+            this.solveBlocks(w, s, first, n);
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (w.invMass[i] > 0) {
+                s.vx[i + first] = (w.px[i] - s.x[i + first]) / dt;
+                s.vy[i + first] = (w.py[i] - s.y[i + first]) / dt;
+            }
+        }
+        k.updateLengths();
+    }
+
+    /* The positions reached by the solver are those given by the new speeds. */
+    @Override
+    public void movePoints(Machine m, double dt) {
+        m.move(dt);
+    }
+
+    @Override
+    public void endStep(Machine m, double dt) {
+        // Nothing to do once the points have moved.
+    }
+
+    /* The blocks are found through the world, so another world gets its own integrator. */
+    @Override
+    public Integrator forWorld(World w) {
+        if (w == this.world) {
+            return this;
+        }
+        return new XpbdIntegrator(w, this.nbIterations);
+    }
+
+    private void solveSprings(Workspace w, PointStore s, SpringKernel k, int first, double dt) {
+        for (int j = 0; j < k.nbSprings; j++) {
+            int a = k.start[j] - first;
+            int b = k.end[j] - first;
+            double wSum = w.invMass[a] + w.invMass[b];
+            double dx = w.px[b] - w.px[a];
+            double dy = w.py[b] - w.py[a];
+            double l = Math.sqrt(dx * dx + dy * dy);
+            if (wSum == 0 || l < 0.001) {
+                continue;
+            }
+            double nx = dx / l;
+            double ny = dy / l;
+            double c = l - k.l0[j];
+
+            double alpha = 1 / (k.strength[j] * dt * dt);
+            double gamma = k.damping[j] / k.strength[j];
+            /* Displacement of the constraint since the start of the step. */
+            double move = (w.px[b] - s.x[b + first] - w.px[a] + s.x[a + first]) * nx
+                    + (w.py[b] - s.y[b + first] - w.py[a] + s.y[a + first]) * ny;
+
+            double dLambda = (-c - alpha * w.lambda[j] - gamma * move) / ((1 + gamma) * wSum + alpha);
+            w.lambda[j] += dLambda;
+            w.px[b] += w.invMass[b] * dLambda * nx;
+            w.py[b] += w.invMass[b] * dLambda * ny;
+            w.px[a] -= w.invMass[a] * dLambda * nx;
+            w.py[a] -= w.invMass[a] * dLambda * ny;
+        }
+    }
+
+    /* Push each point out of the blocks enlarged by the radius of the point,
+     through the face it came from: the face is chosen with the position at the
+     start of the step, so that fast points do not cross thin blocks.
+     A point that was already inside leaves through the nearest face.
+     Only the blocks of the cells of the grid crossed by the point are tested. */
+    private void solveBlocks(Workspace w, PointStore s, int first, int n) {
+        BlockGrid grid = this.world.getBlockGrid();
+        if (grid == null || grid.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            if (w.invMass[i] == 0) {
+                continue;
+            }
+            double r = s.radius[i + first];
+            int col0 = grid.getCol(Math.min(s.x[i + first], w.px[i]) - r);
+            int col1 = grid.getCol(Math.max(s.x[i + first], w.px[i]) + r);
+            int line0 = grid.getLine(Math.min(s.y[i + first], w.py[i]) - r);
+            int line1 = grid.getLine(Math.max(s.y[i + first], w.py[i]) + r);
+            for (int line = line0; line <= line1; line++) {
+                for (int col = col0; col <= col1; col++) {
+                    int cell = grid.getCell(col, line);
+                    for (int k = 0; k < grid.getNbBlocks(cell); k++) {
+                        // A block found again in another cell no longer contains the point.
+                        this.pushOut(w, s, first, i, grid.getBlock(cell, k));
+                    }
+                }
+            }
+        }
+    }
+
+    private void pushOut(Workspace w, PointStore s, int first, int i, Block block) {
+        double c = block.getCos();
+        double sin = block.getSin();
+        double r = s.radius[i + first];
+        double halfWidth = block.getWidth() / 2 + r;
+        double halfHeight = block.getHeight() / 2 + r;
+        double lx = (w.px[i] - block.getX()) * c + (w.py[i] - block.getY()) * sin;
+        double ly = -(w.px[i] - block.getX()) * sin + (w.py[i] - block.getY()) * c;
+        if (Math.abs(lx) >= halfWidth || Math.abs(ly) >= halfHeight) {
+            return;
+        }
+
+        double startX = (s.x[i + first] - block.getX()) * c + (s.y[i + first] - block.getY()) * sin;
+        double startY = -(s.x[i + first] - block.getX()) * sin + (s.y[i + first] - block.getY()) * c;
+        double outX = (Math.abs(startX) - halfWidth) / halfWidth;
+        double outY = (Math.abs(startY) - halfHeight) / halfHeight;
+        boolean throughSide;
+        if (outX > 0 || outY > 0) {
+            throughSide = outX > outY;
+            lx = throughSide ? Math.signum(startX) * halfWidth : lx;
+            ly = throughSide ? ly : Math.signum(startY) * halfHeight;
+        } else if (halfWidth - Math.abs(lx) < halfHeight - Math.abs(ly)) {
+            lx = Math.signum(lx) * halfWidth;
+        } else {
+            ly = Math.signum(ly) * halfHeight;
+        }
+        w.px[i] = block.getX() + lx * c - ly * sin;
+        w.py[i] = block.getY() + lx * sin + ly * c;
+    }
+
+    /* Arrays of the solver, indexed by the rank of the point in the machine
+     or by the rank of the spring in the kernel. They only grow. */
+    private static class Workspace {
+
+        private double[] invMass, px, py;
+        private double[] lambda;
+
+        private Workspace() {
+            this.ensureCapacity(16, 32);
+        }
+
+        private void ensureCapacity(int nbPoints, int nbSprings) {
+            if (this.invMass == null || this.invMass.length < nbPoints) {
+                int size = Math.max(nbPoints, 16);
+                this.invMass = new double[size];
+                this.px = new double[size];
+                this.py = new double[size];
+            }
+            if (this.lambda == null || this.lambda.length < nbSprings) {
+                this.lambda = new double[Math.max(nbSprings, 32)];
+            }
+        }
+    }
+}